@@ -0,0 +1,106 @@
+package io.revealbi.sdk.ext.api;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+
+import com.infragistics.reveal.sdk.api.IRVUserContext;
+
+/**
+ * Implementation of {@link IAsyncDashboardRepository} running the operations of a synchronous {@link IDashboardRepository}
+ * in the given executor, which should be dedicated to I/O operations, so slow storage doesn't block request threads.
+ */
+public class AsyncDashboardRepositoryAdapter implements IAsyncDashboardRepository {
+	private final IDashboardRepository repository;
+	private final Executor executor;
+
+	public AsyncDashboardRepositoryAdapter(IDashboardRepository repository, Executor executor) {
+		this.repository = repository;
+		this.executor = executor;
+	}
+
+	public IDashboardRepository getRepository() {
+		return repository;
+	}
+
+	@Override
+	public CompletionStage<InputStream> getDashboardAsync(IRVUserContext userContext, String dashboardId) {
+		return run(new IOSupplier<InputStream>() {
+			@Override
+			public InputStream get() throws IOException {
+				return repository.getDashboard(userContext, dashboardId);
+			}
+		});
+	}
+
+	@Override
+	public CompletionStage<Void> saveDashboardAsync(IRVUserContext userContext, String dashboardId, InputStream dashboardStream) {
+		return run(new IOSupplier<Void>() {
+			@Override
+			public Void get() throws IOException {
+				try (InputStream in = dashboardStream) {
+					repository.saveDashboard(userContext, dashboardId, in);
+				}
+				return null;
+			}
+		});
+	}
+
+	@Override
+	public CompletionStage<DashboardInfo[]> getUserDashboardsAsync(IRVUserContext userContext) {
+		return run(new IOSupplier<DashboardInfo[]>() {
+			@Override
+			public DashboardInfo[] get() throws IOException {
+				return repository.getUserDashboards(userContext);
+			}
+		});
+	}
+
+	@Override
+	public CompletionStage<Void> deleteDashboardAsync(IRVUserContext userContext, String dashboardId) {
+		return run(new IOSupplier<Void>() {
+			@Override
+			public Void get() throws IOException {
+				repository.deleteDashboard(userContext, dashboardId);
+				return null;
+			}
+		});
+	}
+
+	private <T> CompletableFuture<T> run(IOSupplier<T> supplier) {
+		CompletableFuture<T> future = new CompletableFuture<T>();
+		try {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						future.complete(supplier.get());
+					} catch (Throwable exc) {
+						future.completeExceptionally(exc);
+					}
+				}
+			});
+		} catch (RuntimeException exc) {
+			// like RejectedExecutionException
+			future.completeExceptionally(exc);
+		}
+		return future;
+	}
+
+	private interface IOSupplier<T> {
+		T get() throws IOException;
+	}
+
+	/**
+	 * Returns the exception thrown by the operation, removing the {@link CompletionException} wrapper added by dependent stages.
+	 */
+	public static Throwable unwrap(Throwable exc) {
+		while (exc instanceof CompletionException && exc.getCause() != null) {
+			exc = exc.getCause();
+		}
+		return exc;
+	}
+}
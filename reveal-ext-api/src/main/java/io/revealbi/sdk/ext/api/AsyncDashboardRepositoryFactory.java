@@ -0,0 +1,73 @@
+package io.revealbi.sdk.ext.api;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Factory for the asynchronous dashboards repository used by REST services.
+ * If no instance is set, the repository returned by {@link DashboardRepositoryFactory#getInstance()} is used: directly if
+ * it implements {@link IAsyncDashboardRepository} or wrapped with an {@link AsyncDashboardRepositoryAdapter} if not, running
+ * operations in a pool of {@value #DEFAULT_IO_THREADS} threads, that can be changed with {@link #setExecutor(ExecutorService)}.
+ */
+public class AsyncDashboardRepositoryFactory {
+	public static final int DEFAULT_IO_THREADS = 16;
+
+	private static IAsyncDashboardRepository instance;
+	private static ExecutorService executor;
+	private static ExecutorService ownedExecutor;
+	private static AsyncDashboardRepositoryAdapter adapter;
+
+	public static synchronized IAsyncDashboardRepository getInstance() {
+		if (instance != null) {
+			return instance;
+		}
+		IDashboardRepository repository = DashboardRepositoryFactory.getInstance();
+		if (repository == null) {
+			return null;
+		}
+		if (repository instanceof IAsyncDashboardRepository) {
+			return (IAsyncDashboardRepository)repository;
+		}
+		if (adapter == null || adapter.getRepository() != repository) {
+			adapter = new AsyncDashboardRepositoryAdapter(repository, getExecutor());
+		}
+		return adapter;
+	}
+
+	public static synchronized void setInstance(IAsyncDashboardRepository instance) {
+		AsyncDashboardRepositoryFactory.instance = instance;
+	}
+
+	/**
+	 * Sets the executor used to run the operations of synchronous repositories. The given executor is not shut down by 
+	 * the factory, while the default pool is shut down when replaced.
+	 */
+	public static synchronized void setExecutor(ExecutorService executor) {
+		ExecutorService previous = ownedExecutor;
+		AsyncDashboardRepositoryFactory.executor = executor;
+		ownedExecutor = null;
+		adapter = null;
+		if (previous != null && previous != executor) {
+			// tasks already submitted are completed before the threads are stopped
+			previous.shutdown();
+		}
+	}
+
+	private static ExecutorService getExecutor() {
+		if (executor == null) {
+			final AtomicInteger count = new AtomicInteger();
+			executor = Executors.newFixedThreadPool(DEFAULT_IO_THREADS, new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "reveal-dashboards-io-" + count.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			ownedExecutor = executor;
+		}
+		return executor;
+	}
+}
@@ -0,0 +1,112 @@
+package io.revealbi.sdk.ext.api;
+
+import javax.json.bind.annotation.JsonbTransient;
+
+/**
+ * A change to a dashboard or a data source, recorded by the repositories in the {@link io.revealbi.sdk.ext.base.ChangeLog}.
+ */
+public class ChangeEvent {
+	public enum ResourceType {
+		DASHBOARD,
+		DATA_SOURCE
+	}
+
+	public enum Action {
+		SAVED,
+		DELETED
+	}
+
+	private long sequence;
+	private String token;
+	private ResourceType type;
+	private Action action;
+	private String id;
+	private long timestamp;
+	private String scope;
+
+	public ChangeEvent() {
+	}
+
+	public ChangeEvent(long sequence, String token, String scope, ResourceType type, Action action, String id, long timestamp) {
+		this.sequence = sequence;
+		this.token = token;
+		this.scope = scope;
+		this.type = type;
+		this.action = action;
+		this.id = id;
+		this.timestamp = timestamp;
+	}
+
+	/**
+	 * Returns the sequence number of the change, changes are numbered consecutively in the order they were recorded.
+	 */
+	public long getSequence() {
+		return sequence;
+	}
+
+	public void setSequence(long sequence) {
+		this.sequence = sequence;
+	}
+
+	/**
+	 * Returns the token to use to request the changes after this one.
+	 */
+	public String getToken() {
+		return token;
+	}
+
+	public void setToken(String token) {
+		this.token = token;
+	}
+
+	public ResourceType getType() {
+		return type;
+	}
+
+	public void setType(ResourceType type) {
+		this.type = type;
+	}
+
+	public Action getAction() {
+		return action;
+	}
+
+	public void setAction(Action action) {
+		this.action = action;
+	}
+
+	/**
+	 * Returns the id of the modified dashboard or data source.
+	 */
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	/**
+	 * Returns the time the change was recorded, in milliseconds since the epoch.
+	 */
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	public void setTimestamp(long timestamp) {
+		this.timestamp = timestamp;
+	}
+
+	/**
+	 * Returns the id of the user owning the modified resource, or null if the resource is shared by all users.
+	 */
+	@JsonbTransient
+	public String getScope() {
+		return scope;
+	}
+
+	@JsonbTransient
+	public void setScope(String scope) {
+		this.scope = scope;
+	}
+}
@@ -0,0 +1,63 @@
+package io.revealbi.sdk.ext.api;
+
+/**
+ * The changes made after a given token, returned by {@link io.revealbi.sdk.ext.base.ChangeLog#getChanges(String, String, int)}.
+ */
+public class ChangesPage {
+	private ChangeEvent[] changes;
+	private String token;
+	private boolean reset;
+	private boolean more;
+
+	public ChangesPage() {
+	}
+
+	public ChangesPage(ChangeEvent[] changes, String token, boolean reset, boolean more) {
+		this.changes = changes;
+		this.token = token;
+		this.reset = reset;
+		this.more = more;
+	}
+
+	public ChangeEvent[] getChanges() {
+		return changes;
+	}
+
+	public void setChanges(ChangeEvent[] changes) {
+		this.changes = changes;
+	}
+
+	/**
+	 * Returns the opaque token to use to request the next changes.
+	 */
+	public String getToken() {
+		return token;
+	}
+
+	public void setToken(String token) {
+		this.token = token;
+	}
+
+	/**
+	 * Returns true if the changes after the requested token are no longer available (or no token was specified), in which
+	 * case the client must load the full lists of dashboards and data sources again and then continue from the returned token.
+	 */
+	public boolean isReset() {
+		return reset;
+	}
+
+	public void setReset(boolean reset) {
+		this.reset = reset;
+	}
+
+	/**
+	 * Returns true if there are more changes after the returned token, that were not included because of the maximum number of results.
+	 */
+	public boolean isMore() {
+		return more;
+	}
+
+	public void setMore(boolean more) {
+		this.more = more;
+	}
+}
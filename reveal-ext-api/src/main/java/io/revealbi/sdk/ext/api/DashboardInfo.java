@@ -5,6 +5,7 @@ import java.util.Map;
 public class DashboardInfo {
 	private String id;
 	private Map<String, Object> info;
+	private Long lastModified;
 	
 	public DashboardInfo() {			
 	}
@@ -34,4 +35,15 @@ public class DashboardInfo {
 	public void setInfo(Map<String, Object> info) {
 		this.info = info;
 	}
+
+	/**
+	 * Returns the last time the dashboard was modified, in milliseconds since the epoch, or null if the repository doesn't provide it.
+	 */
+	public Long getLastModified() {
+		return lastModified;
+	}
+
+	public void setLastModified(Long lastModified) {
+		this.lastModified = lastModified;
+	}
 }
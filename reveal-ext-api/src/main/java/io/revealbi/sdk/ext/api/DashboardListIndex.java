@@ -0,0 +1,231 @@
+package io.revealbi.sdk.ext.api;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Sorted index of the dashboards of a user, used to return pages of dashboards without sorting the whole list on each request.
+ * Cursors returned in each page contain the sort value and id of the last dashboard in the page, so pages are still
+ * consistent when dashboards are added or removed between requests.
+ * It also keeps a trigram index of dashboard titles, used to search dashboards by title without scanning the whole list.
+ */
+public class DashboardListIndex {
+	private static final Comparator<DashboardInfo> TITLE_COMPARATOR = new Comparator<DashboardInfo>() {
+		@Override
+		public int compare(DashboardInfo d1, DashboardInfo d2) {
+			int result = d1.getDisplayName().compareToIgnoreCase(d2.getDisplayName());
+			return result != 0 ? result : d1.getId().compareTo(d2.getId());
+		}
+	};
+
+	private static final Comparator<DashboardInfo> MODIFIED_COMPARATOR = new Comparator<DashboardInfo>() {
+		@Override
+		public int compare(DashboardInfo d1, DashboardInfo d2) {
+			int result = Long.compare(getLastModified(d1), getLastModified(d2));
+			return result != 0 ? result : d1.getId().compareTo(d2.getId());
+		}
+	};
+
+	private final Map<String, DashboardInfo> dashboards = new HashMap<String, DashboardInfo>();
+	private final TreeSet<DashboardInfo> byTitle = new TreeSet<DashboardInfo>(TITLE_COMPARATOR);
+	private final TreeSet<DashboardInfo> byModified = new TreeSet<DashboardInfo>(MODIFIED_COMPARATOR);
+	private final Map<String, Set<String>> trigrams = new HashMap<String, Set<String>>();
+	private final Set<String> pendingIds = new HashSet<String>();
+	private final long created;
+
+	public DashboardListIndex(DashboardInfo[] infos) {
+		for (DashboardInfo info : infos) {
+			put(info);
+		}
+		created = System.currentTimeMillis();
+	}
+
+	public synchronized void put(DashboardInfo info) {
+		remove(info.getId());
+		dashboards.put(info.getId(), info);
+		byTitle.add(info);
+		byModified.add(info);
+		for (String trigram : getTrigrams(normalize(info.getDisplayName()))) {
+			Set<String> ids = trigrams.get(trigram);
+			if (ids == null) {
+				ids = new HashSet<String>();
+				trigrams.put(trigram, ids);
+			}
+			ids.add(info.getId());
+		}
+	}
+
+	public synchronized void remove(String dashboardId) {
+		DashboardInfo existing = dashboards.remove(dashboardId);
+		if (existing != null) {
+			byTitle.remove(existing);
+			byModified.remove(existing);
+			for (String trigram : getTrigrams(normalize(existing.getDisplayName()))) {
+				Set<String> ids = trigrams.get(trigram);
+				if (ids != null) {
+					ids.remove(dashboardId);
+					if (ids.isEmpty()) {
+						trigrams.remove(trigram);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes the given dashboard from the index and marks it as pending, so the owner of the index can load it again
+	 * before returning the next page.
+	 */
+	public synchronized void invalidate(String dashboardId) {
+		remove(dashboardId);
+		pendingIds.add(dashboardId);
+	}
+
+	/**
+	 * Returns and clears the list of dashboards invalidated since the last call.
+	 */
+	public synchronized List<String> takePendingIds() {
+		List<String> ids = new ArrayList<String>(pendingIds);
+		pendingIds.clear();
+		return ids;
+	}
+
+	public boolean isOlderThan(long millis) {
+		return System.currentTimeMillis() - created > millis;
+	}
+
+	/**
+	 * Returns the page of dashboards following the given cursor.
+	 * @param sortKey The attribute used to sort dashboards.
+	 * @param descending true to sort in descending order.
+	 * @param cursor The cursor returned with the previous page, or null to get the first page.
+	 * @param pageSize The maximum number of dashboards to return.
+	 * @return The requested page.
+	 * @throws IllegalArgumentException if the cursor is invalid or it was created for a different sort key.
+	 */
+	public synchronized DashboardsPage getPage(DashboardSortKey sortKey, boolean descending, String cursor, int pageSize) {
+		NavigableSet<DashboardInfo> set = sortKey == DashboardSortKey.MODIFIED ? byModified : byTitle;
+		if (descending) {
+			set = set.descendingSet();
+		}
+		if (cursor != null) {
+			set = set.tailSet(decodeCursor(sortKey, cursor), false);
+		}
+		List<DashboardInfo> page = new ArrayList<DashboardInfo>(Math.min(pageSize, dashboards.size()));
+		Iterator<DashboardInfo> it = set.iterator();
+		while (page.size() < pageSize && it.hasNext()) {
+			page.add(it.next());
+		}
+		String nextCursor = it.hasNext() && !page.isEmpty() ? encodeCursor(sortKey, page.get(page.size() - 1)) : null;
+		return new DashboardsPage(page.toArray(new DashboardInfo[page.size()]), nextCursor, dashboards.size());
+	}
+
+	/**
+	 * Returns the dashboards whose title contains the given text (case-insensitive), dashboards whose title starts 
+	 * with the text are returned first and then the rest, both groups sorted by title.
+	 * @param query The text to search for.
+	 * @param maxResults The maximum number of dashboards to return.
+	 * @return The list of dashboards matching the query.
+	 */
+	public synchronized DashboardInfo[] search(String query, int maxResults) {
+		String text = normalize(query);
+		Iterable<DashboardInfo> candidates;
+		if (text.length() < 3) {
+			candidates = byTitle;
+		} else {
+			Set<String> ids = null;
+			for (String trigram : getTrigrams(text)) {
+				Set<String> trigramIds = trigrams.get(trigram);
+				if (trigramIds == null) {
+					return new DashboardInfo[0];
+				}
+				if (ids == null || trigramIds.size() < ids.size()) {
+					ids = trigramIds;
+				}
+			}
+			TreeSet<DashboardInfo> sorted = new TreeSet<DashboardInfo>(TITLE_COMPARATOR);
+			for (String id : ids) {
+				sorted.add(dashboards.get(id));
+			}
+			candidates = sorted;
+		}
+		List<DashboardInfo> prefixMatches = new ArrayList<DashboardInfo>();
+		List<DashboardInfo> otherMatches = new ArrayList<DashboardInfo>();
+		for (DashboardInfo info : candidates) {
+			String title = normalize(info.getDisplayName());
+			if (title.startsWith(text)) {
+				prefixMatches.add(info);
+				if (prefixMatches.size() >= maxResults) {
+					break;
+				}
+			} else if (otherMatches.size() < maxResults && title.contains(text)) {
+				otherMatches.add(info);
+			}
+		}
+		List<DashboardInfo> result = prefixMatches;
+		for (int i = 0; i < otherMatches.size() && result.size() < maxResults; i++) {
+			result.add(otherMatches.get(i));
+		}
+		return result.toArray(new DashboardInfo[result.size()]);
+	}
+
+	private static String normalize(String text) {
+		return text.toLowerCase(Locale.ROOT);
+	}
+
+	private static Set<String> getTrigrams(String text) {
+		Set<String> result = new HashSet<String>();
+		for (int i = 0; i + 3 <= text.length(); i++) {
+			result.add(text.substring(i, i + 3));
+		}
+		return result;
+	}
+
+	private static String encodeCursor(DashboardSortKey sortKey, DashboardInfo last) {
+		String value = sortKey == DashboardSortKey.MODIFIED ? Long.toString(getLastModified(last)) : last.getDisplayName();
+		String str = sortKey.name() + "\n" + last.getId() + "\n" + value;
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(str.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static DashboardInfo decodeCursor(DashboardSortKey sortKey, String cursor) {
+		String[] parts;
+		try {
+			parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\n", 3);
+		} catch (IllegalArgumentException exc) {
+			throw new IllegalArgumentException("Invalid cursor: " + cursor);
+		}
+		if (parts.length != 3 || !parts[0].equals(sortKey.name())) {
+			throw new IllegalArgumentException("Invalid cursor: " + cursor);
+		}
+		DashboardInfo probe;
+		if (sortKey == DashboardSortKey.MODIFIED) {
+			probe = new DashboardInfo(parts[1], null);
+			try {
+				probe.setLastModified(Long.parseLong(parts[2]));
+			} catch (NumberFormatException exc) {
+				throw new IllegalArgumentException("Invalid cursor: " + cursor);
+			}
+		} else {
+			Map<String, Object> info = new HashMap<String, Object>();
+			info.put("Title", parts[2]);
+			probe = new DashboardInfo(parts[1], info);
+		}
+		return probe;
+	}
+
+	private static long getLastModified(DashboardInfo info) {
+		Long lastModified = info.getLastModified();
+		return lastModified == null ? 0 : lastModified;
+	}
+}
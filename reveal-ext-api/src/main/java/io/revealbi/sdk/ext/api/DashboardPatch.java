@@ -0,0 +1,312 @@
+package io.revealbi.sdk.ext.api;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.revealbi.sdk.ext.util.OrderedJsonParser;
+import io.revealbi.sdk.ext.util.OrderedJsonWriter;
+
+/**
+ * Patch to apply to the dashboard document ("Dashboard.json") of a dashboard, in one of the standard formats:
+ * <ul>
+ * <li>{@link Type#MERGE_PATCH}: JSON merge patch (RFC 7386), an object with the members to add or replace and null for the members to remove.</li>
+ * <li>{@link Type#JSON_PATCH}: JSON patch (RFC 6902), an array of operations ("add", "remove", "replace", "move", "copy" and "test").</li>
+ * </ul>
+ * See {@link IDashboardRepository#patchDashboard(com.infragistics.reveal.sdk.api.IRVUserContext, String, DashboardPatch, String)}.
+ */
+public class DashboardPatch {
+	public static final String MERGE_PATCH_MEDIA_TYPE = "application/merge-patch+json";
+	public static final String JSON_PATCH_MEDIA_TYPE = "application/json-patch+json";
+
+	public enum Type {
+		MERGE_PATCH,
+		JSON_PATCH
+	}
+
+	private final Type type;
+	private final Object patch;
+
+	/**
+	 * Creates a new patch.
+	 * @param type The format of the patch.
+	 * @param patch The patch, as parsed JSON: a map for merge patches and a list of maps for JSON patches.
+	 */
+	public DashboardPatch(Type type, Object patch) {
+		this.type = type;
+		this.patch = patch;
+	}
+
+	/**
+	 * Parses a patch in the format of the given media type.
+	 * @throws IllegalArgumentException If the media type is not supported or the patch is not valid JSON.
+	 */
+	public static DashboardPatch parse(String mediaType, String patch) {
+		Type type;
+		if (MERGE_PATCH_MEDIA_TYPE.equalsIgnoreCase(mediaType)) {
+			type = Type.MERGE_PATCH;
+		} else if (JSON_PATCH_MEDIA_TYPE.equalsIgnoreCase(mediaType)) {
+			type = Type.JSON_PATCH;
+		} else {
+			throw new IllegalArgumentException("Unsupported patch type: " + mediaType);
+		}
+		Object value;
+		try {
+			value = OrderedJsonParser.parse(patch);
+		} catch (IllegalArgumentException exc) {
+			throw new IllegalArgumentException("Invalid patch: " + exc.getMessage(), exc);
+		}
+		if (type == Type.JSON_PATCH && !(value instanceof List)) {
+			throw new IllegalArgumentException("JSON patch must be an array of operations");
+		}
+		return new DashboardPatch(type, value);
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	public Object getPatch() {
+		return patch;
+	}
+
+	/**
+	 * Applies the patch to the given dashboard document.
+	 * @param dashboardJson The serialized dashboard document.
+	 * @return The serialized patched document.
+	 * @throws IllegalArgumentException If the document or the patch are not valid.
+	 * @throws IllegalStateException If the patch can't be applied to the document, like a failed "test" operation or a path not found.
+	 */
+	public byte[] apply(byte[] dashboardJson) {
+		Object document;
+		try {
+			document = OrderedJsonParser.parse(new String(dashboardJson, StandardCharsets.UTF_8));
+		} catch (IllegalArgumentException exc) {
+			throw new IllegalArgumentException("Invalid dashboard document: " + exc.getMessage(), exc);
+		}
+		if (type == Type.MERGE_PATCH) {
+			document = mergePatch(document, patch);
+		} else {
+			for (Object operation : (List<?>)patch) {
+				if (!(operation instanceof Map)) {
+					throw new IllegalArgumentException("Invalid JSON patch operation: " + operation);
+				}
+				document = applyOperation(document, (Map<?, ?>)operation);
+			}
+		}
+		// not serialized with JSON-B, which drops members with null values
+		return OrderedJsonWriter.toJson(document).getBytes(StandardCharsets.UTF_8);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Object mergePatch(Object target, Object patch) {
+		if (!(patch instanceof Map)) {
+			return copy(patch);
+		}
+		Map<String, Object> result = target instanceof Map ? (Map<String, Object>)target : new LinkedHashMap<String, Object>();
+		for (Map.Entry<?, ?> entry : ((Map<?, ?>)patch).entrySet()) {
+			String name = String.valueOf(entry.getKey());
+			if (entry.getValue() == null) {
+				result.remove(name);
+			} else {
+				result.put(name, mergePatch(result.get(name), entry.getValue()));
+			}
+		}
+		return result;
+	}
+
+	private static Object applyOperation(Object document, Map<?, ?> operation) {
+		String op = getString(operation, "op");
+		String path = getString(operation, "path");
+		switch (op) {
+		case "add":
+			return add(document, path, copy(getValue(operation)));
+		case "remove":
+			return remove(document, path);
+		case "replace":
+			return add(remove(document, path), path, copy(getValue(operation)));
+		case "move": {
+			String from = getString(operation, "from");
+			if (path.startsWith(from + "/")) {
+				throw new IllegalArgumentException("Can't move " + from + " to one of its children");
+			}
+			Object value = get(document, from);
+			return add(remove(document, from), path, value);
+		}
+		case "copy":
+			return add(document, path, copy(get(document, getString(operation, "from"))));
+		case "test":
+			if (!jsonEquals(get(document, path), getValue(operation))) {
+				throw new IllegalStateException("Test failed for " + path);
+			}
+			return document;
+		default:
+			throw new IllegalArgumentException("Unsupported JSON patch operation: " + op);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Object add(Object document, String path, Object value) {
+		if (path.isEmpty()) {
+			return value;
+		}
+		Object parent = get(document, getParentPath(path));
+		String name = getLastToken(path);
+		if (parent instanceof Map) {
+			((Map<String, Object>)parent).put(name, value);
+		} else if (parent instanceof List) {
+			List<Object> list = (List<Object>)parent;
+			int index = name.equals("-") ? list.size() : getIndex(name, list.size() + 1, path);
+			list.add(index, value);
+		} else {
+			throw new IllegalStateException("Parent of " + path + " is not an object or array");
+		}
+		return document;
+	}
+
+	private static Object remove(Object document, String path) {
+		if (path.isEmpty()) {
+			return null;
+		}
+		Object parent = get(document, getParentPath(path));
+		String name = getLastToken(path);
+		if (parent instanceof Map) {
+			Map<?, ?> map = (Map<?, ?>)parent;
+			if (!map.containsKey(name)) {
+				throw new IllegalStateException("Path not found: " + path);
+			}
+			map.remove(name);
+		} else if (parent instanceof List) {
+			List<?> list = (List<?>)parent;
+			list.remove(getIndex(name, list.size(), path));
+		} else {
+			throw new IllegalStateException("Path not found: " + path);
+		}
+		return document;
+	}
+
+	/**
+	 * Returns the value at the given JSON pointer (RFC 6901).
+	 */
+	private static Object get(Object document, String path) {
+		if (path.isEmpty()) {
+			return document;
+		}
+		if (!path.startsWith("/")) {
+			throw new IllegalArgumentException("Invalid path: " + path);
+		}
+		Object current = document;
+		for (String token : path.substring(1).split("/", -1)) {
+			token = unescape(token);
+			if (current instanceof Map && ((Map<?, ?>)current).containsKey(token)) {
+				current = ((Map<?, ?>)current).get(token);
+			} else if (current instanceof List) {
+				List<?> list = (List<?>)current;
+				current = list.get(getIndex(token, list.size(), path));
+			} else {
+				throw new IllegalStateException("Path not found: " + path);
+			}
+		}
+		return current;
+	}
+
+	private static String getParentPath(String path) {
+		if (!path.startsWith("/")) {
+			throw new IllegalArgumentException("Invalid path: " + path);
+		}
+		return path.substring(0, path.lastIndexOf('/'));
+	}
+
+	private static String getLastToken(String path) {
+		return unescape(path.substring(path.lastIndexOf('/') + 1));
+	}
+
+	private static String unescape(String token) {
+		return token.replace("~1", "/").replace("~0", "~");
+	}
+
+	private static int getIndex(String token, int size, String path) {
+		int index;
+		try {
+			index = Integer.parseInt(token);
+		} catch (NumberFormatException exc) {
+			throw new IllegalStateException("Invalid array index in " + path);
+		}
+		if (index < 0 || index >= size || (token.length() > 1 && token.startsWith("0"))) {
+			throw new IllegalStateException("Invalid array index in " + path);
+		}
+		return index;
+	}
+
+	private static String getString(Map<?, ?> operation, String name) {
+		Object value = operation.get(name);
+		if (!(value instanceof String)) {
+			throw new IllegalArgumentException("Missing \"" + name + "\" in JSON patch operation");
+		}
+		return (String)value;
+	}
+
+	private static Object getValue(Map<?, ?> operation) {
+		if (!operation.containsKey("value")) {
+			throw new IllegalArgumentException("Missing \"value\" in JSON patch operation");
+		}
+		return operation.get("value");
+	}
+
+	/**
+	 * Deep copy of values from the patch, so the patch is not modified when applied and can be applied more than once.
+	 */
+	private static Object copy(Object value) {
+		if (value instanceof Map) {
+			Map<String, Object> map = new LinkedHashMap<String, Object>();
+			for (Map.Entry<?, ?> entry : ((Map<?, ?>)value).entrySet()) {
+				map.put(String.valueOf(entry.getKey()), copy(entry.getValue()));
+			}
+			return map;
+		}
+		if (value instanceof List) {
+			List<Object> list = new ArrayList<Object>();
+			for (Object item : (List<?>)value) {
+				list.add(copy(item));
+			}
+			return list;
+		}
+		return value;
+	}
+
+	private static boolean jsonEquals(Object value1, Object value2) {
+		if (value1 instanceof Number && value2 instanceof Number) {
+			return new BigDecimal(value1.toString()).compareTo(new BigDecimal(value2.toString())) == 0;
+		}
+		if (value1 instanceof Map && value2 instanceof Map) {
+			Map<?, ?> map1 = (Map<?, ?>)value1;
+			Map<?, ?> map2 = (Map<?, ?>)value2;
+			if (!map1.keySet().equals(map2.keySet())) {
+				return false;
+			}
+			for (Object key : map1.keySet()) {
+				if (!jsonEquals(map1.get(key), map2.get(key))) {
+					return false;
+				}
+			}
+			return true;
+		}
+		if (value1 instanceof List && value2 instanceof List) {
+			List<?> list1 = (List<?>)value1;
+			List<?> list2 = (List<?>)value2;
+			if (list1.size() != list2.size()) {
+				return false;
+			}
+			for (int i = 0; i < list1.size(); i++) {
+				if (!jsonEquals(list1.get(i), list2.get(i))) {
+					return false;
+				}
+			}
+			return true;
+		}
+		return value1 == null ? value2 == null : value1.equals(value2);
+	}
+}
@@ -0,0 +1,18 @@
+package io.revealbi.sdk.ext.api;
+
+import java.util.Locale;
+
+/**
+ * The attribute used to sort pages of dashboards, see {@link IDashboardRepository#getUserDashboards(com.infragistics.reveal.sdk.api.IRVUserContext, DashboardSortKey, boolean, String, int)}.
+ */
+public enum DashboardSortKey {
+	TITLE,
+	MODIFIED;
+	
+	/**
+	 * Case-insensitive version of {@link #valueOf(String)}, also used by JAX-RS to convert query parameters.
+	 */
+	public static DashboardSortKey fromString(String value) {
+		return valueOf(value.toUpperCase(Locale.ROOT));
+	}
+}
@@ -0,0 +1,29 @@
+package io.revealbi.sdk.ext.api;
+
+/**
+ * Thrown when a dashboard is not in the version expected by the client, for example when it was modified by another 
+ * client since it was loaded, see {@link IDashboardRepository#patchDashboard(com.infragistics.reveal.sdk.api.IRVUserContext, String, DashboardPatch, String)}.
+ */
+public class DashboardVersionMismatchException extends IllegalStateException {
+	private static final long serialVersionUID = 1L;
+
+	private final String expectedVersion;
+	private final String version;
+
+	public DashboardVersionMismatchException(String dashboardId, String expectedVersion, String version) {
+		super("Dashboard " + dashboardId + " was modified, expected version " + expectedVersion + " but found " + version);
+		this.expectedVersion = expectedVersion;
+		this.version = version;
+	}
+
+	public String getExpectedVersion() {
+		return expectedVersion;
+	}
+
+	/**
+	 * Returns the current version of the dashboard.
+	 */
+	public String getVersion() {
+		return version;
+	}
+}
@@ -0,0 +1,49 @@
+package io.revealbi.sdk.ext.api;
+
+/**
+ * A page of dashboards, returned by {@link IDashboardRepository#getUserDashboards(com.infragistics.reveal.sdk.api.IRVUserContext, DashboardSortKey, boolean, String, int)}.
+ */
+public class DashboardsPage {
+	private DashboardInfo[] dashboards;
+	private String nextCursor;
+	private int totalCount;
+	
+	public DashboardsPage() {
+	}
+	
+	public DashboardsPage(DashboardInfo[] dashboards, String nextCursor, int totalCount) {
+		this.dashboards = dashboards;
+		this.nextCursor = nextCursor;
+		this.totalCount = totalCount;
+	}
+
+	public DashboardInfo[] getDashboards() {
+		return dashboards;
+	}
+
+	public void setDashboards(DashboardInfo[] dashboards) {
+		this.dashboards = dashboards;
+	}
+
+	/**
+	 * Returns the opaque cursor to be used to request the next page, or null if this is the last page.
+	 */
+	public String getNextCursor() {
+		return nextCursor;
+	}
+
+	public void setNextCursor(String nextCursor) {
+		this.nextCursor = nextCursor;
+	}
+
+	/**
+	 * Returns the total number of dashboards the user has access to.
+	 */
+	public int getTotalCount() {
+		return totalCount;
+	}
+
+	public void setTotalCount(int totalCount) {
+		this.totalCount = totalCount;
+	}
+}
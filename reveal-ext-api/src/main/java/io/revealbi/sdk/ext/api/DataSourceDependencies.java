@@ -0,0 +1,49 @@
+package io.revealbi.sdk.ext.api;
+
+/**
+ * The dashboards using a data source, returned by {@link IDashboardRepository#getDataSourceDependencies(com.infragistics.reveal.sdk.api.IRVUserContext, String)}.
+ */
+public class DataSourceDependencies {
+	private String dataSourceId;
+	private String[] dashboardIds;
+	private boolean complete;
+
+	public DataSourceDependencies() {
+	}
+
+	public DataSourceDependencies(String dataSourceId, String[] dashboardIds, boolean complete) {
+		this.dataSourceId = dataSourceId;
+		this.dashboardIds = dashboardIds;
+		this.complete = complete;
+	}
+
+	/**
+	 * Returns the data source id or unique identifier the dashboards were requested for.
+	 */
+	public String getDataSourceId() {
+		return dataSourceId;
+	}
+
+	public void setDataSourceId(String dataSourceId) {
+		this.dataSourceId = dataSourceId;
+	}
+
+	public String[] getDashboardIds() {
+		return dashboardIds;
+	}
+
+	public void setDashboardIds(String[] dashboardIds) {
+		this.dashboardIds = dashboardIds;
+	}
+
+	/**
+	 * Returns false if the list might be incomplete, because the index of the existing dashboards is still being built.
+	 */
+	public boolean isComplete() {
+		return complete;
+	}
+
+	public void setComplete(boolean complete) {
+		this.complete = complete;
+	}
+}
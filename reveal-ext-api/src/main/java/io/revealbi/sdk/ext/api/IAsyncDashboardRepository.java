@@ -0,0 +1,37 @@
+package io.revealbi.sdk.ext.api;
+
+import java.io.InputStream;
+import java.util.concurrent.CompletionStage;
+
+import com.infragistics.reveal.sdk.api.IRVUserContext;
+
+/**
+ * Asynchronous version of the main operations in {@link IDashboardRepository}, used by REST services to avoid blocking
+ * request threads while dashboards are loaded from or saved to storage.
+ * Repositories with native asynchronous access to their storage can implement this interface directly, for the rest
+ * {@link AsyncDashboardRepositoryAdapter} runs the synchronous operations in a separate executor.
+ * Stages complete exceptionally with the same exceptions thrown by the synchronous version, like {@link java.io.IOException}.
+ */
+public interface IAsyncDashboardRepository {
+	/**
+	 * Asynchronous version of {@link IDashboardRepository#getDashboard(IRVUserContext, String)}.
+	 * @return A stage completed with the content of the dashboard, or with null if the dashboard doesn't exist.
+	 */
+	CompletionStage<InputStream> getDashboardAsync(IRVUserContext userContext, String dashboardId);
+
+	/**
+	 * Asynchronous version of {@link IDashboardRepository#saveDashboard(IRVUserContext, String, InputStream)}, the stream
+	 * is closed once the dashboard is saved.
+	 */
+	CompletionStage<Void> saveDashboardAsync(IRVUserContext userContext, String dashboardId, InputStream dashboardStream);
+
+	/**
+	 * Asynchronous version of {@link IDashboardRepository#getUserDashboards(IRVUserContext)}.
+	 */
+	CompletionStage<DashboardInfo[]> getUserDashboardsAsync(IRVUserContext userContext);
+
+	/**
+	 * Asynchronous version of {@link IDashboardRepository#deleteDashboard(IRVUserContext, String)}.
+	 */
+	CompletionStage<Void> deleteDashboardAsync(IRVUserContext userContext, String dashboardId);
+}
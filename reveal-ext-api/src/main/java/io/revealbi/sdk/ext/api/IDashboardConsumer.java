@@ -0,0 +1,13 @@
+package io.revealbi.sdk.ext.api;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Callback used by {@link IDashboardRepository#getDashboards(com.infragistics.reveal.sdk.api.IRVUserContext, java.util.List, IDashboardConsumer)}
+ * to process dashboards one at a time, the stream is closed by the repository after this method returns.
+ */
+@FunctionalInterface
+public interface IDashboardConsumer {
+	void accept(String dashboardId, InputStream dashboardStream) throws IOException;
+}
@@ -1,11 +1,25 @@
 package io.revealbi.sdk.ext.api;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 import com.infragistics.reveal.sdk.api.IRVDashboardProvider;
 import com.infragistics.reveal.sdk.api.IRVUserContext;
 import com.infragistics.reveal.sdk.util.RVSerializationUtilities;
 
+import io.revealbi.sdk.ext.util.RdashUtilities;
+
 public interface IDashboardRepository extends IRVDashboardProvider {
 	/**
 	 * Gets the list of dashboards the user has access to, please note the returned objects are "info" objects, containing just 
@@ -17,6 +31,37 @@ public interface IDashboardRepository extends IRVDashboardProvider {
 	 */
 	DashboardInfo[] getUserDashboards(IRVUserContext userContext) throws IOException;
 	
+	/**
+	 * Gets a page of the list of dashboards the user has access to, sorted by the given key.
+	 * The default implementation loads the whole list using {@link #getUserDashboards(IRVUserContext)} and sorts it on every call,
+	 * repositories can override it to return pages from a sorted index.
+	 * @param userContext The user context of the user owning the dashboards requested.
+	 * @param sortKey The attribute used to sort dashboards.
+	 * @param descending true to sort dashboards in descending order.
+	 * @param cursor The cursor returned with the previous page ({@link DashboardsPage#getNextCursor()}), or null to get the first page.
+	 * @param pageSize The maximum number of dashboards to return.
+	 * @return The requested page of dashboards.
+	 * @throws IOException If there was an error loading the list of dashboards from storage.
+	 * @throws IllegalArgumentException If the cursor is not valid for the given sort key.
+	 */
+	default DashboardsPage getUserDashboards(IRVUserContext userContext, DashboardSortKey sortKey, boolean descending, String cursor, int pageSize) throws IOException {
+		return new DashboardListIndex(getUserDashboards(userContext)).getPage(sortKey, descending, cursor, pageSize);
+	}
+	
+	/**
+	 * Searches the dashboards the user has access to by title, returning the ones whose title contains the given text (case-insensitive).
+	 * The default implementation loads the whole list using {@link #getUserDashboards(IRVUserContext)} and filters it,
+	 * repositories can override it to use an index.
+	 * @param userContext The user context of the user owning the dashboards requested.
+	 * @param query The text to search for in dashboard titles.
+	 * @param maxResults The maximum number of dashboards to return.
+	 * @return The dashboards matching the query, the ones whose title starts with the text are returned first.
+	 * @throws IOException If there was an error loading the list of dashboards from storage.
+	 */
+	default DashboardInfo[] searchUserDashboards(IRVUserContext userContext, String query, int maxResults) throws IOException {
+		return new DashboardListIndex(getUserDashboards(userContext)).search(query, maxResults);
+	}
+	
 	/**
 	 * Deletes the specified dashboard from storage.
 	 * @param userContext The context if of the user performing the operation.
@@ -41,4 +86,242 @@ public interface IDashboardRepository extends IRVDashboardProvider {
 
 	String[] getDashboardIdList(IRVUserContext userContext) throws IOException;
 	
+	/**
+	 * Loads the given dashboards, passing each one to the consumer, dashboards not found are skipped.
+	 * The default implementation calls {@link #getDashboard(IRVUserContext, String)} for each dashboard.
+	 * @param userContext The context of the user requesting the dashboards.
+	 * @param dashboardIds The ids of the dashboards to load.
+	 * @param consumer The consumer called with the content of each dashboard, the stream is closed after it returns.
+	 * @throws IOException If there was an error loading the dashboards, or thrown by the consumer.
+	 */
+	default void getDashboards(IRVUserContext userContext, List<String> dashboardIds, IDashboardConsumer consumer) throws IOException {
+		for (String dashboardId : dashboardIds) {
+			InputStream in = getDashboard(userContext, dashboardId);
+			if (in == null) {
+				continue;
+			}
+			try {
+				consumer.accept(dashboardId, in);
+			} finally {
+				in.close();
+			}
+		}
+	}
+	
+	/**
+	 * Returns the info object for each of the given dashboards, dashboards not found are skipped.
+	 * The default implementation filters the list returned by {@link #getUserDashboards(IRVUserContext)}.
+	 * @param userContext The context of the user requesting the dashboards.
+	 * @param dashboardIds The ids of the dashboards.
+	 * @return The info objects for the dashboards found, in the same order than the given ids.
+	 * @throws IOException If there was an error loading the dashboards.
+	 */
+	default DashboardInfo[] getDashboardInfos(IRVUserContext userContext, List<String> dashboardIds) throws IOException {
+		Map<String, DashboardInfo> infos = new HashMap<String, DashboardInfo>();
+		for (DashboardInfo info : getUserDashboards(userContext)) {
+			infos.put(info.getId(), info);
+		}
+		List<DashboardInfo> result = new ArrayList<DashboardInfo>();
+		for (String dashboardId : dashboardIds) {
+			DashboardInfo info = infos.get(dashboardId);
+			if (info != null) {
+				result.add(info);
+			}
+		}
+		return result.toArray(new DashboardInfo[result.size()]);
+	}
+	
+	/**
+	 * Checks which of the given dashboards exist.
+	 * The default implementation loads each dashboard using {@link #getDashboard(IRVUserContext, String)}.
+	 * @param userContext The context of the user requesting the dashboards.
+	 * @param dashboardIds The ids of the dashboards to check.
+	 * @return A map with an entry for each of the given ids, with true as the value if the dashboard exists.
+	 * @throws IOException If there was an error accessing the storage.
+	 */
+	default Map<String, Boolean> exists(IRVUserContext userContext, List<String> dashboardIds) throws IOException {
+		Map<String, Boolean> result = new LinkedHashMap<String, Boolean>();
+		for (String dashboardId : dashboardIds) {
+			InputStream in = getDashboard(userContext, dashboardId);
+			if (in != null) {
+				in.close();
+			}
+			result.put(dashboardId, in != null);
+		}
+		return result;
+	}
+	
+	/**
+	 * Deletes the given dashboards from storage.
+	 * The default implementation calls {@link #deleteDashboard(IRVUserContext, String)} for each dashboard.
+	 * @param userContext The context of the user performing the operation.
+	 * @param dashboardIds The ids of the dashboards to delete.
+	 * @throws IOException If there was an error deleting the dashboards.
+	 */
+	default void deleteDashboards(IRVUserContext userContext, List<String> dashboardIds) throws IOException {
+		for (String dashboardId : dashboardIds) {
+			deleteDashboard(userContext, dashboardId);
+		}
+	}
+	
+	/**
+	 * Returns an opaque version for the given dashboard, the value is expected to change every time the dashboard is modified.
+	 * It's used to validate cached information about the dashboard and as the ETag of the dashboard in REST services, so clients
+	 * can avoid downloading it again if it wasn't modified.
+	 * Getting the version should be much cheaper than loading the dashboard, like the last modified time and size of a file.
+	 * The default implementation returns null, meaning the version is unknown.
+	 * @param userContext The context of the user requesting the dashboard.
+	 * @param dashboardId The id of the dashboard.
+	 * @return The version of the dashboard or null if it's unknown or the dashboard doesn't exist.
+	 * @throws IOException If there was an error accessing the storage.
+	 */
+	default String getDashboardVersion(IRVUserContext userContext, String dashboardId) throws IOException {
+		return null;
+	}
+	
+	/**
+	 * Returns the last time the given dashboard was modified, in milliseconds since the epoch. Used as the Last-Modified
+	 * header of the dashboard in REST services. The default implementation returns null, meaning it's unknown.
+	 * @param userContext The context of the user requesting the dashboard.
+	 * @param dashboardId The id of the dashboard.
+	 * @return The last modified time of the dashboard or null if it's unknown or the dashboard doesn't exist.
+	 * @throws IOException If there was an error accessing the storage.
+	 */
+	default Long getDashboardLastModified(IRVUserContext userContext, String dashboardId) throws IOException {
+		return null;
+	}
+	
+	/**
+	 * Returns an opaque version for the list of dashboards returned by {@link #getUserDashboards(IRVUserContext)}, the value is
+	 * expected to change every time a dashboard is added, removed or modified. It's used as the ETag of the list in REST services.
+	 * The default implementation returns null, meaning the version is unknown.
+	 * @param userContext The context of the user requesting the list of dashboards.
+	 * @return The version of the list of dashboards or null if it's unknown.
+	 * @throws IOException If there was an error accessing the storage.
+	 */
+	default String getUserDashboardsVersion(IRVUserContext userContext) throws IOException {
+		return null;
+	}
+	
+	/**
+	 * Returns the file where the given dashboard is stored, for repositories storing dashboards as ".rdash" files.
+	 * When a file is returned, it's used to serve the dashboard more efficiently, for example by using {@link java.nio.channels.FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}
+	 * and supporting range requests when the dashboard is exported.
+	 * The default implementation returns null, meaning dashboards are always loaded using {@link #getDashboard(IRVUserContext, String)}.
+	 * @param userContext The context of the user requesting the dashboard.
+	 * @param dashboardId The id of the dashboard.
+	 * @return The file containing the dashboard or null if it doesn't exist or the repository doesn't store dashboards as files.
+	 * @throws IOException If there was an error accessing the storage.
+	 */
+	default File getDashboardFile(IRVUserContext userContext, String dashboardId) throws IOException {
+		return null;
+	}
+	
+	/**
+	 * Returns the content of the given dashboard as a read-only buffer, allowing repositories to serve dashboards from 
+	 * memory-mapped files or other off-heap memory without copying them.
+	 * The default implementation reads the stream returned by {@link #getDashboard(IRVUserContext, String)} into a heap buffer.
+	 * @param userContext The context of the user requesting the dashboard.
+	 * @param dashboardId The id of the dashboard.
+	 * @return The content of the dashboard, positioned at its start, or null if it doesn't exist.
+	 * @throws IOException If there was an error accessing the storage.
+	 */
+	default ByteBuffer getDashboardBuffer(IRVUserContext userContext, String dashboardId) throws IOException {
+		InputStream in = getDashboard(userContext, dashboardId);
+		if (in == null) {
+			return null;
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try {
+			RVSerializationUtilities.copyStream(in, out);
+		} finally {
+			in.close();
+		}
+		return ByteBuffer.wrap(out.toByteArray()).asReadOnlyBuffer();
+	}
+	
+	/**
+	 * Applies the given patch to the dashboard document of the given dashboard and saves the result, so clients can save 
+	 * small changes without uploading the whole dashboard.
+	 * Same as {@link #patchDashboard(IRVUserContext, String, DashboardPatch, String)} without checking the version.
+	 */
+	default boolean patchDashboard(IRVUserContext userContext, String dashboardId, DashboardPatch patch) throws IOException {
+		return patchDashboard(userContext, dashboardId, patch, null);
+	}
+	
+	/**
+	 * Applies a patch to the dashboard document ("Dashboard.json") of the given dashboard, used by clients to make 
+	 * small changes without uploading the whole dashboard, only if the dashboard is in the given version.
+	 * The default implementation checks the version, loads the dashboard, replaces its document with the patched one 
+	 * and saves it using {@link #saveDashboard(IRVUserContext, String, InputStream)}. Repositories should override it 
+	 * to prevent concurrent saves of the same dashboard between checking the version and saving it.
+	 * @param userContext The context of the user modifying the dashboard.
+	 * @param dashboardId The id of the dashboard.
+	 * @param patch The patch to apply.
+	 * @param expectedVersion The version the dashboard must have (see {@link #getDashboardVersion(IRVUserContext, String)}), 
+	 * or null to patch any version.
+	 * @return true if the dashboard was patched, false if it doesn't exist.
+	 * @throws IOException If there was an error accessing the storage.
+	 * @throws IllegalArgumentException If the patch is not valid.
+	 * @throws DashboardVersionMismatchException If the dashboard is not in the expected version.
+	 * @throws IllegalStateException If the patch can't be applied to the dashboard, see {@link DashboardPatch#apply(byte[])}.
+	 */
+	default boolean patchDashboard(IRVUserContext userContext, String dashboardId, DashboardPatch patch, String expectedVersion) throws IOException {
+		if (expectedVersion != null) {
+			String version = getDashboardVersion(userContext, dashboardId);
+			if (version != null && !version.equals(expectedVersion)) {
+				throw new DashboardVersionMismatchException(dashboardId, expectedVersion, version);
+			}
+		}
+		InputStream in = getDashboard(userContext, dashboardId);
+		if (in == null) {
+			return false;
+		}
+		ByteArrayOutputStream rdash = new ByteArrayOutputStream();
+		try {
+			RVSerializationUtilities.copyStream(in, rdash);
+		} finally {
+			in.close();
+		}
+		byte[] json = RdashUtilities.readDashboardJson(new ByteArrayInputStream(rdash.toByteArray()));
+		if (json == null) {
+			throw new IOException("Dashboard document not found in dashboard " + dashboardId);
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream(rdash.size());
+		RdashUtilities.replaceDashboardJson(new ByteArrayInputStream(rdash.toByteArray()), out, patch.apply(json));
+		saveDashboard(userContext, dashboardId, new ByteArrayInputStream(out.toByteArray()));
+		return true;
+	}
+	
+	/**
+	 * Returns the dashboards using the given data source, found by comparing the data sources in the dashboard documents
+	 * with the given id or unique identifier, to know which dashboards are affected when a data source is modified or deleted.
+	 * The default implementation reads the dashboard document of all dashboards, {@link io.revealbi.sdk.ext.base.BaseDashboardRepository}
+	 * keeps an index updated when dashboards are saved or deleted.
+	 * @param userContext The context of the user requesting the dashboards.
+	 * @param dataSourceId The id or unique identifier of the data source.
+	 * @return The dashboards using the data source.
+	 * @throws IOException If there was an error accessing the storage.
+	 */
+	default DataSourceDependencies getDataSourceDependencies(IRVUserContext userContext, String dataSourceId) throws IOException {
+		String[] ids = getDashboardIdList(userContext);
+		List<String> result = new ArrayList<String>();
+		if (ids != null) {
+			getDashboards(userContext, Arrays.asList(ids), new IDashboardConsumer() {
+				@Override
+				public void accept(String dashboardId, InputStream dashboardStream) throws IOException {
+					byte[] json = RdashUtilities.readDashboardJson(dashboardStream);
+					try {
+						if (json != null && RdashUtilities.getDataSourceKeys(json).contains(dataSourceId)) {
+							result.add(dashboardId);
+						}
+					} catch (IllegalArgumentException exc) {
+						// invalid dashboard document, it can't use the data source
+					}
+				}
+			});
+		}
+		Collections.sort(result);
+		return new DataSourceDependencies(dataSourceId, result.toArray(new String[result.size()]), true);
+	}
 }
@@ -1,18 +1,44 @@
 package io.revealbi.sdk.ext.base;
 
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import com.infragistics.reveal.sdk.api.IRVUserContext;
 import com.infragistics.reveal.sdk.api.model.RVDashboardSummary;
 import com.infragistics.reveal.sdk.util.RVSerializationUtilities;
 
+import io.revealbi.sdk.ext.api.ChangeEvent;
 import io.revealbi.sdk.ext.api.DashboardInfo;
+import io.revealbi.sdk.ext.api.DashboardListIndex;
+import io.revealbi.sdk.ext.api.DashboardSortKey;
+import io.revealbi.sdk.ext.api.DashboardsPage;
+import io.revealbi.sdk.ext.api.DataSourceDependencies;
 import io.revealbi.sdk.ext.api.IDashboardRepository;
+import io.revealbi.sdk.ext.util.RdashUtilities;
 
 /**
  * Base implementation of a dashboard repository, for returning the list of dashboards, you just need 
@@ -20,6 +46,38 @@ import io.revealbi.sdk.ext.api.IDashboardRepository;
  * this base class will take care of generating the dashboard info objects.
  */
 public abstract class BaseDashboardRepository implements IDashboardRepository {
+	private static Logger log = Logger.getLogger(BaseDashboardRepository.class.getSimpleName());
+	
+	private static final int DEFAULT_INFO_CACHE_SIZE = 5000;
+	public static final int DEFAULT_PARALLEL_SUMMARY_THRESHOLD = 32;
+	private static final int MAX_LIST_INDEXES = 100;
+	private static final long DEFAULT_LIST_INDEX_TTL = 30000;
+	private static final int MAX_DEPENDENCY_INDEXES = 100;
+	
+	private final DashboardInfoCache infoCache = new DashboardInfoCache(DEFAULT_INFO_CACHE_SIZE);
+	private volatile ExecutorService summaryExecutor;
+	// the pool created by enableParallelSummaryExtraction, shut down when replaced
+	private ExecutorService ownedSummaryExecutor;
+	private volatile int parallelSummaryThreshold = DEFAULT_PARALLEL_SUMMARY_THRESHOLD;
+	private volatile long listIndexTtl = DEFAULT_LIST_INDEX_TTL;
+	private final Map<String, DashboardListIndex> listIndexes = new LinkedHashMap<String, DashboardListIndex>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, DashboardListIndex> eldest) {
+			return size() > MAX_LIST_INDEXES;
+		}
+	};
+	private volatile ExecutorService dependencyIndexExecutor;
+	private final Map<String, DataSourceDependencyIndex> dependencyIndexes = new LinkedHashMap<String, DataSourceDependencyIndex>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, DataSourceDependencyIndex> eldest) {
+			return size() > MAX_DEPENDENCY_INDEXES;
+		}
+	};
+	
 	/**
 	 * Returns the list of dashboards, you should extend this class and implement {@link #getUserDashboardIds(String)} and {@link #getDashboard(String, String)}.
 	 */
@@ -31,6 +89,82 @@ public abstract class BaseDashboardRepository implements IDashboardRepository {
 			return new DashboardInfo[0];
 		}
 		
+		List<DashboardInfo> result = getDashboardInfos(userContext, ids);
+		result.sort(new Comparator<DashboardInfo>() {
+			@Override
+			public int compare(DashboardInfo d1, DashboardInfo d2) {
+				return d1.getDisplayName().compareToIgnoreCase(d2.getDisplayName());
+			}
+		});
+		return result.toArray(new DashboardInfo[result.size()]);
+	}
+	
+	/**
+	 * Returns a page of dashboards from a sorted index kept in memory for each scope (see {@link #getDashboardsScope(String)}).
+	 * The index is updated when dashboards are saved or deleted (see {@link #dashboardChanged(String, String)}) and created
+	 * again from the full list of dashboards after the time set with {@link #setDashboardListIndexTtl(long)}, to include changes
+	 * made directly to the storage.
+	 */
+	@Override
+	public DashboardsPage getUserDashboards(IRVUserContext userContext, DashboardSortKey sortKey, boolean descending, String cursor, int pageSize) throws IOException {
+		return getDashboardListIndex(userContext).getPage(sortKey, descending, cursor, pageSize);
+	}
+	
+	/**
+	 * Searches dashboards by title using the same index used to return pages of dashboards, see {@link #getUserDashboards(IRVUserContext, DashboardSortKey, boolean, String, int)}.
+	 */
+	@Override
+	public DashboardInfo[] searchUserDashboards(IRVUserContext userContext, String query, int maxResults) throws IOException {
+		return getDashboardListIndex(userContext).search(query, maxResults);
+	}
+	
+	private DashboardListIndex getDashboardListIndex(IRVUserContext userContext) throws IOException {
+		String scope = getDashboardsScope(userContext.getUserId());
+		DashboardListIndex index;
+		synchronized (listIndexes) {
+			index = listIndexes.get(scope);
+		}
+		if (index == null || index.isOlderThan(listIndexTtl)) {
+			index = new DashboardListIndex(getUserDashboards(userContext));
+			synchronized (listIndexes) {
+				listIndexes.put(scope, index);
+			}
+			return index;
+		}
+		List<String> pendingIds = index.takePendingIds();
+		int processed = 0;
+		try {
+			for (String id : pendingIds) {
+				DashboardInfo info = getDashboardInfo(userContext, id);
+				if (info != null) {
+					index.put(info);
+				}
+				processed++;
+			}
+		} finally {
+			// the dashboards not read because of an error are read again the next time
+			for (String id : pendingIds.subList(processed, pendingIds.size())) {
+				index.invalidate(id);
+			}
+		}
+		return index;
+	}
+	
+	/**
+	 * Returns the info objects for the given dashboards, using the cache and loading only the dashboards not cached, 
+	 * instead of loading the whole list of dashboards.
+	 */
+	@Override
+	public DashboardInfo[] getDashboardInfos(IRVUserContext userContext, List<String> dashboardIds) throws IOException {
+		List<DashboardInfo> result = getDashboardInfos(userContext, dashboardIds.toArray(new String[dashboardIds.size()]));
+		return result.toArray(new DashboardInfo[result.size()]);
+	}
+	
+	private List<DashboardInfo> getDashboardInfos(IRVUserContext userContext, String[] ids) throws IOException {
+		ExecutorService executor = summaryExecutor;
+		if (executor != null && ids.length >= parallelSummaryThreshold) {
+			return getDashboardInfos(userContext, ids, executor);
+		}
 		List<DashboardInfo> result = new ArrayList<DashboardInfo>();
 		for (String id : ids) {
 			DashboardInfo info = getDashboardInfo(userContext, id);
@@ -38,30 +172,401 @@ public abstract class BaseDashboardRepository implements IDashboardRepository {
 				result.add(info);
 			}
 		}
-		result.sort(new Comparator<DashboardInfo>() {
-			@Override
-			public int compare(DashboardInfo d1, DashboardInfo d2) {
-				return d1.getDisplayName().compareToIgnoreCase(d2.getDisplayName());
+		return result;
+	}
+	
+	private List<DashboardInfo> getDashboardInfos(IRVUserContext userContext, String[] ids, ExecutorService executor) throws IOException {
+		List<Callable<DashboardInfo>> tasks = new ArrayList<Callable<DashboardInfo>>(ids.length);
+		for (String id : ids) {
+			tasks.add(new Callable<DashboardInfo>() {
+				@Override
+				public DashboardInfo call() throws Exception {
+					return getDashboardInfo(userContext, id);
+				}
+			});
+		}
+		List<DashboardInfo> result = new ArrayList<DashboardInfo>(ids.length);
+		try {
+			for (Future<DashboardInfo> future : executor.invokeAll(tasks)) {
+				DashboardInfo info = future.get();
+				if (info != null) {
+					result.add(info);
+				}
 			}
-		});
-		return result.toArray(new DashboardInfo[result.size()]);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while loading the list of dashboards");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException)cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException)cause;
+			}
+			throw new IOException(cause);
+		}
+		return result;
 	}
 	
+	/**
+	 * Returns the info object for the given dashboard, using the cached one if the dashboard was not modified since the 
+	 * info was created. Repositories must implement {@link #getDashboardVersion(IRVUserContext, String)} for the cache to be used,
+	 * dashboards with unknown version are always loaded.
+	 */
 	protected DashboardInfo getDashboardInfo(IRVUserContext userContext, String dashboardId) throws IOException {
-		InputStream in = getDashboard(userContext, dashboardId);
-		if (in == null) {
-			return null;
+		String scope = getDashboardsScope(userContext.getUserId());
+		String version = getDashboardVersion(userContext, dashboardId);
+		if (version != null) {
+			DashboardInfo info = infoCache.get(scope, dashboardId, version);
+			if (info != null) {
+				return info;
+			}
+		}
+		DashboardInfo info = createDashboardInfo(userContext, dashboardId);
+		if (info != null && version != null) {
+			infoCache.put(scope, dashboardId, version, info);
+		}
+		return info;
+	}
+	
+	/**
+	 * Creates the info object for the given dashboard, by loading the dashboard and extracting the summary from it.
+	 * If the dashboard is stored in a file (see {@link #getDashboardFile(IRVUserContext, String)}) only the dashboard
+	 * document is read from it, skipping other entries like images.
+	 */
+	protected DashboardInfo createDashboardInfo(IRVUserContext userContext, String dashboardId) throws IOException {
+		RVDashboardSummary summary;
+		File file = getDashboardFile(userContext, dashboardId);
+		if (file != null) {
+			summary = RdashUtilities.getDashboardSummary(file);
+		} else {
+			InputStream in = getDashboard(userContext, dashboardId);
+			if (in == null) {
+				return null;
+			}
+			try {
+				summary = RVSerializationUtilities.getDashboardSummary(in);
+			} finally {
+				in.close();
+			}
 		}
-		RVDashboardSummary summary = RVSerializationUtilities.getDashboardSummary(in);
 		if (summary == null) {
 			return null;
 		}
 		return new DashboardInfo(dashboardId, summary.toJson());
 
 	}
+	
+	/**
+	 * Returns a version for the list of dashboards created from the ids and versions of all dashboards, 
+	 * or null if the version of any of the dashboards is unknown.
+	 */
+	@Override
+	public String getUserDashboardsVersion(IRVUserContext userContext) throws IOException {
+		String[] ids = getUserDashboardIds(userContext.getUserId());
+		if (ids == null) {
+			ids = new String[0];
+		}
+		ids = ids.clone();
+		Arrays.sort(ids);
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		for (String id : ids) {
+			String version = getDashboardVersion(userContext, id);
+			if (version == null) {
+				return null;
+			}
+			digest.update((id + '\0' + version + '\n').getBytes(StandardCharsets.UTF_8));
+		}
+		StringBuilder sb = new StringBuilder();
+		for (byte b : digest.digest()) {
+			sb.append(String.format("%02x", b));
+		}
+		return sb.toString();
+	}
+	
+	/**
+	 * Returns the scope used to cache information about the dashboards of the given user, the default implementation 
+	 * returns the user id. Repositories sharing dashboards among users can return the same scope for all of them.
+	 * By default it's also the scope the changes are recorded with in the {@link ChangeLog}, which determines who can see them,
+	 * see {@link #getChangeLogScope(String)}.
+	 */
+	protected String getDashboardsScope(String userId) {
+		return userId;
+	}
+	
+	/**
+	 * Returns the scope the changes made by the given user are recorded with in the {@link ChangeLog}: null if visible to all
+	 * users, or the id of the only user that can see them (see {@link ChangeLog#isVisible(ChangeEvent, String)}).
+	 * The default implementation returns {@link #getDashboardsScope(String)}, repositories returning a scope that is not null
+	 * or a user id (for example one shared by a group of users) must override it, otherwise their changes are not visible.
+	 */
+	protected String getChangeLogScope(String userId) {
+		return getDashboardsScope(userId);
+	}
+	
+	/**
+	 * Must be called by subclasses after a dashboard is saved or deleted, so cached information about it is discarded.
+	 * Subclasses should use {@link #dashboardChanged(String, String, ChangeEvent.Action)} instead, so the change is
+	 * recorded in the {@link ChangeLog} with the right action, this method records it as saved.
+	 * @param userId The id of the user that modified the dashboard.
+	 * @param dashboardId The id of the modified dashboard.
+	 */
+	protected void dashboardChanged(String userId, String dashboardId) {
+		dashboardChanged(userId, dashboardId, ChangeEvent.Action.SAVED);
+	}
+	
+	/**
+	 * Must be called by subclasses after a dashboard is saved or deleted, so cached information about it is discarded
+	 * and the change is recorded in the {@link ChangeLog}, see {@link #getChangeLogScope(String)}.
+	 * @param userId The id of the user that modified the dashboard.
+	 * @param dashboardId The id of the modified dashboard.
+	 * @param action Whether the dashboard was saved or deleted.
+	 */
+	protected void dashboardChanged(String userId, String dashboardId, ChangeEvent.Action action) {
+		String scope = getDashboardsScope(userId);
+		ChangeLog.changed(getChangeLogScope(userId), ChangeEvent.ResourceType.DASHBOARD, action, dashboardId);
+		infoCache.remove(scope, dashboardId);
+		DashboardListIndex index;
+		synchronized (listIndexes) {
+			index = listIndexes.get(scope);
+		}
+		if (index != null) {
+			index.invalidate(dashboardId);
+		}
+		DataSourceDependencyIndex dependencyIndex;
+		synchronized (dependencyIndexes) {
+			dependencyIndex = dependencyIndexes.get(scope);
+		}
+		if (dependencyIndex != null) {
+			dependencyIndex.invalidate(dashboardId);
+		}
+	}
+	
+	/**
+	 * Returns the dashboards using the given data source from an index kept in memory for each scope (see {@link #getDashboardsScope(String)}),
+	 * updated when dashboards are saved or deleted (see {@link #dashboardChanged(String, String)}).
+	 * The first time the index of a scope is used it's created with the existing dashboards in the background, and the 
+	 * returned dependencies are marked as not complete until all dashboards were indexed. Use {@link #buildDataSourceDependencyIndex(IRVUserContext)}
+	 * to build the index in advance.
+	 */
+	@Override
+	public DataSourceDependencies getDataSourceDependencies(IRVUserContext userContext, String dataSourceId) throws IOException {
+		DataSourceDependencyIndex index = getDependencyIndex(userContext);
+		List<String> pendingIds = index.takePendingIds();
+		int processed = 0;
+		try {
+			for (String id : pendingIds) {
+				Set<String> keys = getDataSourceKeys(userContext, id);
+				if (keys == null) {
+					index.remove(id);
+				} else {
+					index.put(id, keys);
+				}
+				processed++;
+			}
+		} finally {
+			// the dashboards not read because of an error are indexed again the next time
+			for (String id : pendingIds.subList(processed, pendingIds.size())) {
+				index.invalidate(id);
+			}
+		}
+		return new DataSourceDependencies(dataSourceId, index.getDashboardIds(dataSourceId), index.isComplete());
+	}
+	
+	/**
+	 * Starts building the data source dependency index for the dashboards of the given user in the background, if not 
+	 * started yet, so it's complete when used for the first time. For repositories sharing dashboards among users, it's 
+	 * enough to call it once with any user.
+	 */
+	public void buildDataSourceDependencyIndex(IRVUserContext userContext) {
+		getDependencyIndex(userContext);
+	}
+	
+	private DataSourceDependencyIndex getDependencyIndex(IRVUserContext userContext) {
+		String scope = getDashboardsScope(userContext.getUserId());
+		DataSourceDependencyIndex index;
+		synchronized (dependencyIndexes) {
+			index = dependencyIndexes.get(scope);
+			if (index != null) {
+				return index;
+			}
+			index = new DataSourceDependencyIndex();
+			dependencyIndexes.put(scope, index);
+		}
+		getDependencyIndexExecutor().execute(new DependencyIndexBuilder(userContext, scope, index));
+		return index;
+	}
+	
+	/**
+	 * Returns the ids and unique identifiers of the data sources used by the given dashboard, or null if the dashboard 
+	 * doesn't exist. Only the dashboard document is read, see {@link RdashUtilities}.
+	 */
+	protected Set<String> getDataSourceKeys(IRVUserContext userContext, String dashboardId) throws IOException {
+		byte[] json;
+		try {
+			File file = getDashboardFile(userContext, dashboardId);
+			if (file != null) {
+				json = RdashUtilities.readDashboardJson(file);
+			} else {
+				InputStream in = getDashboard(userContext, dashboardId);
+				if (in == null) {
+					return null;
+				}
+				try {
+					json = RdashUtilities.readDashboardJson(in);
+				} finally {
+					in.close();
+				}
+			}
+		} catch (FileNotFoundException | NoSuchFileException exc) {
+			// deleted after the file was found
+			return null;
+		}
+		if (json == null) {
+			return Collections.emptySet();
+		}
+		try {
+			return RdashUtilities.getDataSourceKeys(json);
+		} catch (IllegalArgumentException exc) {
+			log.warning("Invalid dashboard document in dashboard " + dashboardId + ": " + exc.getMessage());
+			return Collections.emptySet();
+		}
+	}
+	
+	private ExecutorService getDependencyIndexExecutor() {
+		ExecutorService executor = dependencyIndexExecutor;
+		if (executor == null) {
+			synchronized (dependencyIndexes) {
+				executor = dependencyIndexExecutor;
+				if (executor == null) {
+					executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+						@Override
+						public Thread newThread(Runnable r) {
+							Thread thread = new Thread(r, "dependency-index-builder");
+							thread.setDaemon(true);
+							thread.setPriority(Thread.MIN_PRIORITY);
+							return thread;
+						}
+					});
+					dependencyIndexExecutor = executor;
+				}
+			}
+		}
+		return executor;
+	}
+	
+	/**
+	 * Sets the executor used to build data source dependency indexes in the background, by default a single low priority 
+	 * thread is created when the first index is built.
+	 */
+	public void setDependencyIndexExecutor(ExecutorService executor) {
+		this.dependencyIndexExecutor = executor;
+	}
+	
+	/**
+	 * Sets the maximum number of dashboard info objects to keep in memory, the default value is 5000. 
+	 * Use zero to disable the cache.
+	 */
+	public void setDashboardInfoCacheSize(int size) {
+		infoCache.setMaxSize(size);
+	}
+	
+	/**
+	 * Sets the time, in milliseconds, after which the sorted index used to return pages of dashboards is created again, 
+	 * the default value is 30 seconds. Changes made through this repository are included immediately, this is required 
+	 * only to include changes made directly to the storage.
+	 */
+	public void setDashboardListIndexTtl(long millis) {
+		this.listIndexTtl = millis;
+	}
+	
+	/**
+	 * Sets the executor used to extract dashboard summaries in parallel when the list of dashboards is requested, 
+	 * by default no executor is set and summaries are extracted in the calling thread. The executor is not shut down 
+	 * by the repository.
+	 * @param executor The executor to use or null to disable parallel extraction.
+	 * @param threshold The minimum number of dashboards in the list to use the executor, smaller lists are processed in the calling thread.
+	 */
+	public void setSummaryExecutor(ExecutorService executor, int threshold) {
+		replaceSummaryExecutor(executor, threshold, false);
+	}
+	
+	/**
+	 * Enables parallel extraction of dashboard summaries using a new fork-join pool with the given parallelism, 
+	 * lists with less than {@value #DEFAULT_PARALLEL_SUMMARY_THRESHOLD} dashboards are processed in the calling thread.
+	 * The pool is shut down when replaced by calling this method again or {@link #setSummaryExecutor(ExecutorService, int)}.
+	 * @param parallelism The maximum number of threads used to extract summaries.
+	 */
+	public void enableParallelSummaryExtraction(int parallelism) {
+		replaceSummaryExecutor(new ForkJoinPool(parallelism), DEFAULT_PARALLEL_SUMMARY_THRESHOLD, true);
+	}
+	
+	private synchronized void replaceSummaryExecutor(ExecutorService executor, int threshold, boolean owned) {
+		ExecutorService previous = ownedSummaryExecutor;
+		this.summaryExecutor = executor;
+		this.parallelSummaryThreshold = threshold;
+		this.ownedSummaryExecutor = owned ? executor : null;
+		if (previous != null && previous != executor) {
+			// tasks already submitted are completed before the threads are stopped
+			previous.shutdown();
+		}
+	}
 
 	protected abstract String[] getUserDashboardIds(String userId) throws IOException;
 	
+	/**
+	 * Adds the existing dashboards to a data source dependency index one at a time, skipping the ones already indexed 
+	 * because they were saved in the meantime.
+	 */
+	private class DependencyIndexBuilder implements Runnable {
+		private final IRVUserContext userContext;
+		private final String scope;
+		private final DataSourceDependencyIndex index;
+		
+		DependencyIndexBuilder(IRVUserContext userContext, String scope, DataSourceDependencyIndex index) {
+			this.userContext = userContext;
+			this.scope = scope;
+			this.index = index;
+		}
+		
+		@Override
+		public void run() {
+			String[] ids;
+			try {
+				ids = getUserDashboardIds(userContext.getUserId());
+			} catch (IOException | RuntimeException exc) {
+				log.log(Level.WARNING, "Failed to list dashboards to build the data source dependency index", exc);
+				// discarded so it's created again on the next request
+				synchronized (dependencyIndexes) {
+					dependencyIndexes.remove(scope, index);
+				}
+				return;
+			}
+			for (String id : ids != null ? ids : new String[0]) {
+				if (Thread.currentThread().isInterrupted()) {
+					return;
+				}
+				if (index.contains(id)) {
+					continue;
+				}
+				try {
+					Set<String> keys = getDataSourceKeys(userContext, id);
+					if (keys != null) {
+						index.putIfAbsent(id, keys);
+					}
+				} catch (IOException | RuntimeException exc) {
+					log.log(Level.WARNING, "Failed to index data sources of dashboard " + id, exc);
+				}
+			}
+			index.setComplete();
+		}
+	}
+	
 	
 	public String[] getDashboardIdList(IRVUserContext userContext) throws IOException {
 				
@@ -0,0 +1,269 @@
+package io.revealbi.sdk.ext.base;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cache bounded by the estimated size in bytes of its entries, instead of the number of entries.
+ * It uses a W-TinyLFU like policy: new entries are added to a small LRU "window" and, when evicted from there, they're
+ * admitted into the main LRU area only if they were requested more frequently than the entries they would evict.
+ * Access frequencies are tracked using a small count-min sketch that is periodically aged, so one-time requests
+ * (like a scan through all dashboards) don't flush popular entries out of the cache.
+ * All methods are thread-safe.
+ * @param <K> The type of the keys.
+ * @param <V> The type of the values.
+ */
+public class ByteBoundedCache<K, V> {
+	private static final int WINDOW_PERCENT = 1;
+
+	private final LinkedHashMap<K, Node<V>> window = new LinkedHashMap<K, Node<V>>(16, 0.75f, true);
+	private final LinkedHashMap<K, Node<V>> main = new LinkedHashMap<K, Node<V>>(16, 0.75f, true);
+	private final FrequencySketch sketch = new FrequencySketch();
+	private long maxBytes;
+	private long windowBytes;
+	private long mainBytes;
+
+	private long hitCount;
+	private long missCount;
+	private long evictionCount;
+	private long rejectionCount;
+
+	/**
+	 * Creates a new cache.
+	 * @param maxBytes The maximum total size, in bytes, of the entries in the cache, zero disables the cache.
+	 */
+	public ByteBoundedCache(long maxBytes) {
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * Returns the value cached for the given key, or null if there's no entry for it.
+	 */
+	public synchronized V get(K key) {
+		sketch.increment(key.hashCode());
+		Node<V> node = window.get(key);
+		if (node == null) {
+			node = main.get(key);
+		}
+		if (node == null) {
+			missCount++;
+			return null;
+		}
+		hitCount++;
+		return node.value;
+	}
+
+	/**
+	 * Adds or replaces the entry for the given key.
+	 * @param key The key for the entry.
+	 * @param value The value to cache.
+	 * @param size The estimated size of the value in bytes, entries larger than the main area of the cache are rejected.
+	 */
+	public synchronized void put(K key, V value, long size) {
+		remove(key);
+		if (size > getMainMaxBytes()) {
+			rejectionCount++;
+			return;
+		}
+		window.put(key, new Node<V>(value, size));
+		windowBytes += size;
+
+		long windowMaxBytes = getWindowMaxBytes();
+		Iterator<Map.Entry<K, Node<V>>> it = window.entrySet().iterator();
+		while (windowBytes > windowMaxBytes && it.hasNext()) {
+			Map.Entry<K, Node<V>> candidate = it.next();
+			it.remove();
+			windowBytes -= candidate.getValue().size;
+			admit(candidate.getKey(), candidate.getValue());
+		}
+	}
+
+	public synchronized void remove(K key) {
+		Node<V> node = window.remove(key);
+		if (node != null) {
+			windowBytes -= node.size;
+		}
+		node = main.remove(key);
+		if (node != null) {
+			mainBytes -= node.size;
+		}
+	}
+
+	public synchronized void clear() {
+		window.clear();
+		main.clear();
+		windowBytes = 0;
+		mainBytes = 0;
+	}
+
+	/**
+	 * Changes the maximum total size of the cache, evicting entries if needed.
+	 * @param maxBytes The new maximum size in bytes, zero disables the cache.
+	 */
+	public synchronized void setMaxBytes(long maxBytes) {
+		this.maxBytes = maxBytes;
+		evict(window, getWindowMaxBytes(), true);
+		evict(main, getMainMaxBytes(), false);
+	}
+
+	public synchronized long getMaxBytes() {
+		return maxBytes;
+	}
+
+	/**
+	 * Returns the estimated size in bytes of all entries in the cache.
+	 */
+	public synchronized long getSize() {
+		return windowBytes + mainBytes;
+	}
+
+	public synchronized int getEntryCount() {
+		return window.size() + main.size();
+	}
+
+	public synchronized long getHitCount() {
+		return hitCount;
+	}
+
+	public synchronized long getMissCount() {
+		return missCount;
+	}
+
+	/**
+	 * Returns the number of entries removed from the cache to make room for more frequently used ones.
+	 */
+	public synchronized long getEvictionCount() {
+		return evictionCount;
+	}
+
+	/**
+	 * Returns the number of entries not admitted into the cache, because they were too large or less frequently used than
+	 * the entries they would have evicted.
+	 */
+	public synchronized long getRejectionCount() {
+		return rejectionCount;
+	}
+
+	public synchronized double getHitRate() {
+		long requests = hitCount + missCount;
+		return requests == 0 ? 0 : (double)hitCount / requests;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "ByteBoundedCache[entries=" + getEntryCount() + ", bytes=" + getSize() + "/" + maxBytes + ", hits=" + hitCount +
+				", misses=" + missCount + ", evictions=" + evictionCount + ", rejections=" + rejectionCount + "]";
+	}
+
+	private void admit(K key, Node<V> candidate) {
+		long mainMaxBytes = getMainMaxBytes();
+		if (mainBytes + candidate.size > mainMaxBytes) {
+			// collect the least recently used entries that need to be evicted to make room for the candidate,
+			// the candidate is admitted only if it's more frequently used than all of them
+			int candidateFrequency = sketch.frequency(key.hashCode());
+			List<K> victims = new ArrayList<K>();
+			long freed = 0;
+			for (Map.Entry<K, Node<V>> e : main.entrySet()) {
+				if (mainBytes - freed + candidate.size <= mainMaxBytes) {
+					break;
+				}
+				if (sketch.frequency(e.getKey().hashCode()) >= candidateFrequency) {
+					rejectionCount++;
+					return;
+				}
+				victims.add(e.getKey());
+				freed += e.getValue().size;
+			}
+			for (K victim : victims) {
+				mainBytes -= main.remove(victim).size;
+				evictionCount++;
+			}
+		}
+		main.put(key, candidate);
+		mainBytes += candidate.size;
+	}
+
+	private void evict(LinkedHashMap<K, Node<V>> map, long max, boolean window) {
+		Iterator<Node<V>> it = map.values().iterator();
+		while ((window ? windowBytes : mainBytes) > max && it.hasNext()) {
+			Node<V> node = it.next();
+			it.remove();
+			if (window) {
+				windowBytes -= node.size;
+			} else {
+				mainBytes -= node.size;
+			}
+			evictionCount++;
+		}
+	}
+
+	private long getWindowMaxBytes() {
+		return maxBytes * WINDOW_PERCENT / 100;
+	}
+
+	private long getMainMaxBytes() {
+		return maxBytes - getWindowMaxBytes();
+	}
+
+	private static class Node<V> {
+		final V value;
+		final long size;
+
+		Node(V value, long size) {
+			this.value = value;
+			this.size = size;
+		}
+	}
+
+	/**
+	 * Count-min sketch with 4 rows of 8 bit counters, all counters are halved after a number of increments
+	 * proportional to the width of the sketch, so the frequencies reflect recent usage.
+	 */
+	private static class FrequencySketch {
+		private static final int WIDTH = 4096;
+		private static final int DEPTH = 4;
+		private static final int[] SEEDS = { 0x97cb3127, 0xb4b82e59, 0x8e5b1b1f, 0x9e3779b9 };
+		private static final int SAMPLE_SIZE = 10 * WIDTH;
+
+		private final byte[][] counters = new byte[DEPTH][WIDTH];
+		private int additions;
+
+		void increment(int hash) {
+			for (int i = 0; i < DEPTH; i++) {
+				int index = indexOf(hash, i);
+				if (counters[i][index] != Byte.MAX_VALUE) {
+					counters[i][index]++;
+				}
+			}
+			if (++additions >= SAMPLE_SIZE) {
+				reset();
+			}
+		}
+
+		int frequency(int hash) {
+			int result = Byte.MAX_VALUE;
+			for (int i = 0; i < DEPTH; i++) {
+				result = Math.min(result, counters[i][indexOf(hash, i)]);
+			}
+			return result;
+		}
+
+		private void reset() {
+			for (byte[] row : counters) {
+				for (int j = 0; j < row.length; j++) {
+					row[j] = (byte)(row[j] >> 1);
+				}
+			}
+			additions /= 2;
+		}
+
+		private static int indexOf(int hash, int row) {
+			int h = (hash ^ (hash >>> 16)) * SEEDS[row];
+			h ^= h >>> 15;
+			return h & (WIDTH - 1);
+		}
+	}
+}
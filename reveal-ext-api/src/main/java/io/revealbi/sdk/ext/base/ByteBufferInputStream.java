@@ -0,0 +1,66 @@
+package io.revealbi.sdk.ext.base;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Input stream reading the remaining content of a byte buffer, like a memory-mapped file, without copying it to the heap first.
+ * The buffer position is advanced as the stream is read, use a duplicate of the buffer if it's shared. Not thread-safe.
+ */
+public class ByteBufferInputStream extends InputStream {
+	private final ByteBuffer buffer;
+	private int mark;
+
+	public ByteBufferInputStream(ByteBuffer buffer) {
+		this.buffer = buffer;
+		this.mark = buffer.position();
+	}
+
+	@Override
+	public int read() {
+		return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) {
+		if (len == 0) {
+			return 0;
+		}
+		if (!buffer.hasRemaining()) {
+			return -1;
+		}
+		int count = Math.min(len, buffer.remaining());
+		buffer.get(b, off, count);
+		return count;
+	}
+
+	@Override
+	public long skip(long n) {
+		if (n <= 0) {
+			return 0;
+		}
+		int count = (int)Math.min(n, buffer.remaining());
+		buffer.position(buffer.position() + count);
+		return count;
+	}
+
+	@Override
+	public int available() {
+		return buffer.remaining();
+	}
+
+	@Override
+	public boolean markSupported() {
+		return true;
+	}
+
+	@Override
+	public void mark(int readlimit) {
+		mark = buffer.position();
+	}
+
+	@Override
+	public void reset() {
+		buffer.position(mark);
+	}
+}
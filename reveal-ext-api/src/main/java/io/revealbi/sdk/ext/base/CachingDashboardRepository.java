@@ -0,0 +1,261 @@
+package io.revealbi.sdk.ext.base;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.infragistics.controls.IOUtils;
+import com.infragistics.reveal.sdk.api.IRVUserContext;
+
+import io.revealbi.sdk.ext.api.DashboardInfo;
+import io.revealbi.sdk.ext.api.DashboardPatch;
+import io.revealbi.sdk.ext.api.DashboardSortKey;
+import io.revealbi.sdk.ext.api.DashboardsPage;
+import io.revealbi.sdk.ext.api.DataSourceDependencies;
+import io.revealbi.sdk.ext.api.IDashboardRepository;
+
+/**
+ * Decorator caching in memory the content of dashboards and the list of dashboards returned by another repository,
+ * intended for repositories with slow storage like a database or a remote object store.
+ * Entries are cached per user, so users never get dashboards loaded for other users, and the cache is bounded by the
+ * size of the dashboards (see {@link ByteBoundedCache}).
+ * Dashboards saved or deleted through this repository are invalidated for all users, as the wrapped repository might share
+ * dashboards among them. If dashboards can be modified directly in the storage, use {@link #setTtl(long)} to set the
+ * maximum time cached entries are used.
+ */
+public class CachingDashboardRepository implements IDashboardRepository {
+	public static final long DEFAULT_MAX_BYTES = 64 * 1024 * 1024;
+
+	// estimated size of each dashboard info object, used to compute the size of cached lists
+	private static final int DASHBOARD_INFO_SIZE = 512;
+	private static final int STAMP_STRIPES = 1024;
+
+	private final IDashboardRepository repository;
+	private final ByteBoundedCache<String, Entry<byte[]>> dashboards;
+	private final ByteBoundedCache<String, Entry<DashboardInfo[]>> lists;
+	// incremented when dashboards are modified, cached entries loaded before that are discarded
+	private final AtomicLongArray dashboardStamps = new AtomicLongArray(STAMP_STRIPES);
+	private final AtomicLong listsStamp = new AtomicLong();
+	private volatile long ttl;
+
+	public CachingDashboardRepository(IDashboardRepository repository) {
+		this(repository, DEFAULT_MAX_BYTES);
+	}
+
+	/**
+	 * Creates a new caching repository.
+	 * @param repository The repository used to load and save dashboards.
+	 * @param maxBytes The maximum size of the cache, for both dashboards and lists of dashboards.
+	 */
+	public CachingDashboardRepository(IDashboardRepository repository, long maxBytes) {
+		this.repository = repository;
+		this.dashboards = new ByteBoundedCache<String, Entry<byte[]>>(maxBytes);
+		this.lists = new ByteBoundedCache<String, Entry<DashboardInfo[]>>(maxBytes / 4);
+	}
+
+	public IDashboardRepository getRepository() {
+		return repository;
+	}
+
+	@Override
+	public InputStream getDashboard(IRVUserContext userContext, String dashboardId) throws IOException {
+		String key = getKey(userContext, dashboardId);
+		Entry<byte[]> entry = dashboards.get(key);
+		if (isValid(entry, getStamp(dashboardId))) {
+			return new ByteArrayInputStream(entry.value);
+		}
+		// read before loading, so a dashboard saved while it's loaded is not cached with the new stamp
+		long stamp = getStamp(dashboardId);
+		byte[] content;
+		try (InputStream in = repository.getDashboard(userContext, dashboardId)) {
+			if (in == null) {
+				return null;
+			}
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			IOUtils.copy(in, out);
+			content = out.toByteArray();
+		}
+		dashboards.put(key, new Entry<byte[]>(content, stamp), content.length);
+		return new ByteArrayInputStream(content);
+	}
+
+	@Override
+	public DashboardInfo[] getUserDashboards(IRVUserContext userContext) throws IOException {
+		String key = getKey(userContext, null);
+		Entry<DashboardInfo[]> entry = lists.get(key);
+		if (isValid(entry, listsStamp.get())) {
+			return entry.value.clone();
+		}
+		long stamp = listsStamp.get();
+		DashboardInfo[] infos = repository.getUserDashboards(userContext);
+		if (infos != null) {
+			lists.put(key, new Entry<DashboardInfo[]>(infos.clone(), stamp), (long)infos.length * DASHBOARD_INFO_SIZE);
+		}
+		return infos;
+	}
+
+	@Override
+	public DashboardsPage getUserDashboards(IRVUserContext userContext, DashboardSortKey sortKey, boolean descending, String cursor, int pageSize) throws IOException {
+		return repository.getUserDashboards(userContext, sortKey, descending, cursor, pageSize);
+	}
+
+	@Override
+	public DashboardInfo[] searchUserDashboards(IRVUserContext userContext, String query, int maxResults) throws IOException {
+		return repository.searchUserDashboards(userContext, query, maxResults);
+	}
+
+	@Override
+	public void saveDashboard(IRVUserContext userContext, String dashboardId, InputStream dashboardStream) throws IOException {
+		try {
+			repository.saveDashboard(userContext, dashboardId, dashboardStream);
+		} finally {
+			invalidate(dashboardId);
+		}
+	}
+
+	@Override
+	public void deleteDashboard(IRVUserContext userContext, String dashboardId) throws IOException {
+		try {
+			repository.deleteDashboard(userContext, dashboardId);
+		} finally {
+			invalidate(dashboardId);
+		}
+	}
+
+	@Override
+	public void deleteDashboard(String userId, String dashboardId) throws IOException {
+		try {
+			repository.deleteDashboard(userId, dashboardId);
+		} finally {
+			invalidate(dashboardId);
+		}
+	}
+
+	@Override
+	public void deleteDashboards(IRVUserContext userContext, List<String> dashboardIds) throws IOException {
+		try {
+			repository.deleteDashboards(userContext, dashboardIds);
+		} finally {
+			for (String dashboardId : dashboardIds) {
+				invalidate(dashboardId);
+			}
+		}
+	}
+
+	@Override
+	public boolean patchDashboard(IRVUserContext userContext, String dashboardId, DashboardPatch patch, String expectedVersion) throws IOException {
+		try {
+			return repository.patchDashboard(userContext, dashboardId, patch, expectedVersion);
+		} finally {
+			invalidate(dashboardId);
+		}
+	}
+
+	@Override
+	public DataSourceDependencies getDataSourceDependencies(IRVUserContext userContext, String dataSourceId) throws IOException {
+		return repository.getDataSourceDependencies(userContext, dataSourceId);
+	}
+
+	@Override
+	public String[] getDashboardIdList(IRVUserContext userContext) throws IOException {
+		return repository.getDashboardIdList(userContext);
+	}
+
+	@Override
+	public String getDashboardVersion(IRVUserContext userContext, String dashboardId) throws IOException {
+		return repository.getDashboardVersion(userContext, dashboardId);
+	}
+
+	@Override
+	public Long getDashboardLastModified(IRVUserContext userContext, String dashboardId) throws IOException {
+		return repository.getDashboardLastModified(userContext, dashboardId);
+	}
+
+	@Override
+	public String getUserDashboardsVersion(IRVUserContext userContext) throws IOException {
+		return repository.getUserDashboardsVersion(userContext);
+	}
+
+	@Override
+	public File getDashboardFile(IRVUserContext userContext, String dashboardId) throws IOException {
+		return repository.getDashboardFile(userContext, dashboardId);
+	}
+
+	/**
+	 * Discards the cached content of the given dashboard, for all users, and all cached lists of dashboards.
+	 * Called automatically when dashboards are saved or deleted through this repository, it can also be used to notify
+	 * changes made directly to the storage.
+	 * @param dashboardId The id of the modified dashboard.
+	 */
+	public void invalidate(String dashboardId) {
+		dashboardStamps.incrementAndGet(getStripe(dashboardId));
+		listsStamp.incrementAndGet();
+	}
+
+	/**
+	 * Discards all cached entries.
+	 */
+	public void clear() {
+		dashboards.clear();
+		lists.clear();
+	}
+
+	/**
+	 * Sets the maximum time, in milliseconds, cached entries are used before loading them again. The default value is zero,
+	 * meaning entries are used until the dashboard is modified through this repository or evicted from the cache.
+	 */
+	public void setTtl(long ttl) {
+		this.ttl = ttl;
+	}
+
+	/**
+	 * Returns the cache used for the content of dashboards, for accessing its statistics or changing its size.
+	 */
+	public ByteBoundedCache<String, ?> getDashboardsCache() {
+		return dashboards;
+	}
+
+	/**
+	 * Returns the cache used for the lists of dashboards.
+	 */
+	public ByteBoundedCache<String, ?> getListsCache() {
+		return lists;
+	}
+
+	private boolean isValid(Entry<?> entry, long stamp) {
+		if (entry == null || entry.stamp != stamp) {
+			return false;
+		}
+		long maxAge = ttl;
+		return maxAge <= 0 || System.currentTimeMillis() - entry.created < maxAge;
+	}
+
+	private long getStamp(String dashboardId) {
+		return dashboardStamps.get(getStripe(dashboardId));
+	}
+
+	private static int getStripe(String dashboardId) {
+		return (dashboardId.hashCode() & 0x7fffffff) % STAMP_STRIPES;
+	}
+
+	private static String getKey(IRVUserContext userContext, String dashboardId) {
+		String userId = userContext == null ? null : userContext.getUserId();
+		return (userId == null ? "" : userId) + '\0' + (dashboardId == null ? "" : dashboardId);
+	}
+
+	private static class Entry<T> {
+		final T value;
+		final long stamp;
+		final long created = System.currentTimeMillis();
+
+		Entry(T value, long stamp) {
+			this.value = value;
+			this.stamp = stamp;
+		}
+	}
+}
@@ -0,0 +1,208 @@
+package io.revealbi.sdk.ext.base;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import io.revealbi.sdk.ext.api.ChangeEvent;
+import io.revealbi.sdk.ext.api.ChangesPage;
+
+/**
+ * Log of the changes made to dashboards and data sources, recorded by the repositories when they're saved or deleted,
+ * so clients can request only the changes made since the last time they checked instead of loading and comparing the
+ * full lists again.
+ * Changes are numbered with consecutive sequence numbers and the last changes (10000 by default) are kept in memory,
+ * clients use the token returned with each set of changes to request the next ones. Tokens include an identifier of
+ * the log, so tokens created before a restart or by another server are detected and the client is asked to load the
+ * full lists again, the same as when the changes after the token are no longer kept.
+ * Listeners (see {@link #addListener(Listener)}) are notified of the changes in order, from a single background thread.
+ */
+public class ChangeLog {
+	private static Logger log = Logger.getLogger(ChangeLog.class.getSimpleName());
+
+	public static final int DEFAULT_CAPACITY = 10000;
+
+	private static volatile ChangeLog instance = new ChangeLog(DEFAULT_CAPACITY);
+
+	private final String epoch;
+	private final ChangeEvent[] events;
+	private long lastSequence;
+	private final Set<Listener> listeners = Collections.newSetFromMap(new ConcurrentHashMap<Listener, Boolean>());
+	private ExecutorService notifier;
+
+	/**
+	 * Listener notified of each change recorded in the log.
+	 */
+	public interface Listener {
+		void changeRecorded(ChangeEvent event);
+	}
+
+	/**
+	 * Creates a new log.
+	 * @param capacity The number of changes to keep, clients requesting changes older than that are asked to load the full lists.
+	 */
+	public ChangeLog(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Invalid capacity: " + capacity);
+		}
+		this.events = new ChangeEvent[capacity];
+		this.epoch = Long.toHexString(new SecureRandom().nextLong() & Long.MAX_VALUE);
+	}
+
+	/**
+	 * Returns the log where repositories record changes, or null if disabled.
+	 */
+	public static ChangeLog getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Sets the log where repositories record changes.
+	 * @param instance The log to use, or null to stop recording changes.
+	 */
+	public static void setInstance(ChangeLog instance) {
+		ChangeLog.instance = instance;
+	}
+
+	/**
+	 * Records a change to the log of the current instance, if any.
+	 * @param scope The id of the user owning the modified resource, or null if the resource is shared by all users.
+	 */
+	public static void changed(String scope, ChangeEvent.ResourceType type, ChangeEvent.Action action, String id) {
+		ChangeLog changeLog = instance;
+		if (changeLog != null) {
+			changeLog.record(scope, type, action, id);
+		}
+	}
+
+	/**
+	 * Records a change.
+	 * @param scope The id of the user owning the modified resource, or null if the resource is shared by all users.
+	 * @param type The type of the modified resource.
+	 * @param action The action performed.
+	 * @param id The id of the modified resource.
+	 * @return The recorded change.
+	 */
+	public ChangeEvent record(String scope, ChangeEvent.ResourceType type, ChangeEvent.Action action, String id) {
+		ChangeEvent event;
+		synchronized (this) {
+			long sequence = ++lastSequence;
+			event = new ChangeEvent(sequence, getToken(sequence), scope, type, action, id, System.currentTimeMillis());
+			events[getIndex(sequence)] = event;
+			if (notifier != null) {
+				// submitted while holding the lock, so listeners are notified in order
+				notify(event);
+			}
+		}
+		return event;
+	}
+
+	/**
+	 * Returns the changes visible to the given user made after the given token. Changes to shared resources and to
+	 * resources owned by the user are visible.
+	 * @param userId The id of the user requesting the changes.
+	 * @param since The token returned with the previous changes, or null to get only the current token.
+	 * @param maxResults The maximum number of changes to return.
+	 */
+	public synchronized ChangesPage getChanges(String userId, String since, int maxResults) {
+		long sequence = parseToken(since);
+		long oldest = Math.max(1, lastSequence - events.length + 1);
+		if (sequence < oldest - 1 || sequence > lastSequence) {
+			return new ChangesPage(new ChangeEvent[0], getToken(lastSequence), true, false);
+		}
+		List<ChangeEvent> result = new ArrayList<ChangeEvent>();
+		while (sequence < lastSequence && result.size() < maxResults) {
+			ChangeEvent event = events[getIndex(++sequence)];
+			if (isVisible(event, userId)) {
+				result.add(event);
+			}
+		}
+		return new ChangesPage(result.toArray(new ChangeEvent[result.size()]), getToken(sequence), false, sequence < lastSequence);
+	}
+
+	/**
+	 * Returns the token for the last recorded change.
+	 */
+	public synchronized String getCurrentToken() {
+		return getToken(lastSequence);
+	}
+
+	/**
+	 * Returns the sequence number in the given token, or -1 if the token is not valid or was created by another log.
+	 */
+	public long parseToken(String token) {
+		if (token == null) {
+			return -1;
+		}
+		int index = token.indexOf('.');
+		if (index < 0 || !token.substring(0, index).equals(epoch)) {
+			return -1;
+		}
+		try {
+			return Long.parseLong(token.substring(index + 1));
+		} catch (NumberFormatException exc) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Returns true if the given change is visible to the given user.
+	 */
+	public static boolean isVisible(ChangeEvent event, String userId) {
+		return event.getScope() == null || event.getScope().equals(userId);
+	}
+
+	/**
+	 * Adds a listener to notify of each change recorded from now on.
+	 */
+	public void addListener(Listener listener) {
+		synchronized (this) {
+			if (notifier == null) {
+				notifier = Executors.newSingleThreadExecutor(new ThreadFactory() {
+					@Override
+					public Thread newThread(Runnable r) {
+						Thread thread = new Thread(r, "change-log-notifier");
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+			}
+		}
+		listeners.add(listener);
+	}
+
+	public void removeListener(Listener listener) {
+		listeners.remove(listener);
+	}
+
+	private void notify(ChangeEvent event) {
+		notifier.execute(new Runnable() {
+			@Override
+			public void run() {
+				for (Listener listener : listeners) {
+					try {
+						listener.changeRecorded(event);
+					} catch (RuntimeException exc) {
+						log.log(Level.WARNING, "Failed to notify change listener", exc);
+					}
+				}
+			}
+		});
+	}
+
+	private int getIndex(long sequence) {
+		return (int)((sequence - 1) % events.length);
+	}
+
+	private String getToken(long sequence) {
+		return epoch + "." + sequence;
+	}
+}
@@ -0,0 +1,100 @@
+package io.revealbi.sdk.ext.base;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import io.revealbi.sdk.ext.api.DashboardInfo;
+
+/**
+ * Bounded LRU cache for {@link DashboardInfo} objects, used by {@link BaseDashboardRepository} to avoid parsing
+ * the same dashboard over and over when the list of dashboards is requested.
+ * Each entry is stored with the version of the dashboard it was created from, a cached entry is returned only if
+ * the version requested matches the one stored, so entries for modified dashboards are never returned.
+ */
+public class DashboardInfoCache {
+	private final LinkedHashMap<String, Entry> entries;
+	private int maxSize;
+
+	/**
+	 * Creates a new cache holding up to the specified number of entries.
+	 * @param maxSize The maximum number of entries in the cache, zero disables the cache.
+	 */
+	public DashboardInfoCache(int maxSize) {
+		this.maxSize = maxSize;
+		this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+				return size() > DashboardInfoCache.this.maxSize;
+			}
+		};
+	}
+
+	/**
+	 * Returns the cached info for the given dashboard, only if it was created from the given version.
+	 * @param scope The scope of the dashboard (usually the user id), could be null.
+	 * @param dashboardId The id of the dashboard.
+	 * @param version The current version of the dashboard.
+	 * @return The cached info object or null if there's no entry or the entry was created for a different version.
+	 */
+	public synchronized DashboardInfo get(String scope, String dashboardId, String version) {
+		String key = getKey(scope, dashboardId);
+		Entry entry = entries.get(key);
+		if (entry == null) {
+			return null;
+		}
+		if (!entry.version.equals(version)) {
+			entries.remove(key);
+			return null;
+		}
+		return entry.info;
+	}
+
+	public synchronized void put(String scope, String dashboardId, String version, DashboardInfo info) {
+		if (maxSize <= 0) {
+			return;
+		}
+		entries.put(getKey(scope, dashboardId), new Entry(version, info));
+	}
+
+	public synchronized void remove(String scope, String dashboardId) {
+		entries.remove(getKey(scope, dashboardId));
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Changes the maximum number of entries, evicting the least recently used ones if needed.
+	 * @param maxSize The new maximum number of entries, zero disables the cache.
+	 */
+	public synchronized void setMaxSize(int maxSize) {
+		this.maxSize = maxSize;
+		Iterator<String> it = entries.keySet().iterator();
+		while (entries.size() > Math.max(maxSize, 0) && it.hasNext()) {
+			it.next();
+			it.remove();
+		}
+	}
+
+	private static String getKey(String scope, String dashboardId) {
+		return scope == null ? dashboardId : scope + '\0' + dashboardId;
+	}
+
+	private static class Entry {
+		final String version;
+		final DashboardInfo info;
+
+		Entry(String version, DashboardInfo info) {
+			this.version = version;
+			this.info = info;
+		}
+	}
+}
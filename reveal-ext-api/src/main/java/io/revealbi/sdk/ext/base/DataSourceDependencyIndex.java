@@ -0,0 +1,117 @@
+package io.revealbi.sdk.ext.base;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import io.revealbi.sdk.ext.util.RdashUtilities;
+
+/**
+ * Index of the data sources used by the dashboards of a user, mapping data source ids and unique identifiers (the ones
+ * used to associate credentials, see {@link RdashUtilities#getDataSourceKeys(byte[])})
+ * to the ids of the dashboards using them, so the dashboards using a data source are found without loading all dashboards.
+ * Dashboards are invalidated when saved or deleted and indexed again when the index is used, like {@link io.revealbi.sdk.ext.api.DashboardListIndex}.
+ * The index is marked as complete once all existing dashboards were indexed, see {@link #setComplete()}.
+ */
+public class DataSourceDependencyIndex {
+	private final Map<String, Set<String>> dashboardKeys = new HashMap<String, Set<String>>();
+	private final Map<String, Set<String>> keyDashboards = new HashMap<String, Set<String>>();
+	private final Set<String> pendingIds = new HashSet<String>();
+	private volatile boolean complete;
+
+	/**
+	 * Sets the data sources used by the given dashboard.
+	 * @param dashboardId The id of the dashboard.
+	 * @param keys The ids and unique identifiers of the data sources used by the dashboard, see {@link RdashUtilities#getDataSourceKeys(byte[])}.
+	 */
+	public synchronized void put(String dashboardId, Set<String> keys) {
+		remove(dashboardId);
+		dashboardKeys.put(dashboardId, keys);
+		for (String key : keys) {
+			Set<String> ids = keyDashboards.get(key);
+			if (ids == null) {
+				ids = new HashSet<String>();
+				keyDashboards.put(key, ids);
+			}
+			ids.add(dashboardId);
+		}
+	}
+
+	/**
+	 * Sets the data sources used by the given dashboard, unless it was already indexed or it was invalidated. Used when
+	 * indexing existing dashboards, so the data sources read before the dashboard was saved again are not indexed.
+	 * @return true if the dashboard was indexed.
+	 */
+	public synchronized boolean putIfAbsent(String dashboardId, Set<String> keys) {
+		if (dashboardKeys.containsKey(dashboardId) || pendingIds.contains(dashboardId)) {
+			return false;
+		}
+		put(dashboardId, keys);
+		return true;
+	}
+
+	public synchronized void remove(String dashboardId) {
+		Set<String> keys = dashboardKeys.remove(dashboardId);
+		if (keys == null) {
+			return;
+		}
+		for (String key : keys) {
+			Set<String> ids = keyDashboards.get(key);
+			if (ids != null) {
+				ids.remove(dashboardId);
+				if (ids.isEmpty()) {
+					keyDashboards.remove(key);
+				}
+			}
+		}
+	}
+
+	public synchronized boolean contains(String dashboardId) {
+		return dashboardKeys.containsKey(dashboardId) || pendingIds.contains(dashboardId);
+	}
+
+	/**
+	 * Removes the given dashboard from the index and marks it to be indexed again, see {@link #takePendingIds()}.
+	 */
+	public synchronized void invalidate(String dashboardId) {
+		remove(dashboardId);
+		pendingIds.add(dashboardId);
+	}
+
+	/**
+	 * Returns and clears the list of dashboards invalidated since the last call.
+	 */
+	public synchronized List<String> takePendingIds() {
+		List<String> ids = new ArrayList<String>(pendingIds);
+		pendingIds.clear();
+		return ids;
+	}
+
+	/**
+	 * Returns the ids of the dashboards using the data source with the given id or unique identifier, sorted by id.
+	 */
+	public synchronized String[] getDashboardIds(String dataSourceKey) {
+		Set<String> ids = keyDashboards.get(dataSourceKey);
+		if (ids == null) {
+			return new String[0];
+		}
+		String[] result = ids.toArray(new String[ids.size()]);
+		Arrays.sort(result);
+		return result;
+	}
+
+	/**
+	 * Returns true if all existing dashboards were indexed.
+	 */
+	public boolean isComplete() {
+		return complete;
+	}
+
+	public void setComplete() {
+		this.complete = true;
+	}
+}
@@ -0,0 +1,200 @@
+package io.revealbi.sdk.ext.util;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal JSON parser returning plain Java objects (maps, lists, strings, numbers as {@link BigDecimal}, booleans and null),
+ * keeping the order of object members, which JSON-B doesn't when deserializing to untyped objects. Used when a document
+ * is modified and serialized again, like dashboard documents, so members are written back in their original order.
+ */
+public final class OrderedJsonParser {
+	private final String json;
+	private int pos;
+
+	private OrderedJsonParser(String json) {
+		this.json = json;
+	}
+
+	/**
+	 * Parses the given JSON text.
+	 * @throws IllegalArgumentException If the text is not valid JSON.
+	 */
+	public static Object parse(String json) {
+		OrderedJsonParser parser = new OrderedJsonParser(json);
+		Object value = parser.readValue();
+		parser.skipWhitespace();
+		if (parser.pos < json.length()) {
+			throw parser.error("Unexpected content");
+		}
+		return value;
+	}
+
+	private Object readValue() {
+		skipWhitespace();
+		if (pos >= json.length()) {
+			throw error("Unexpected end of JSON");
+		}
+		char c = json.charAt(pos);
+		switch (c) {
+		case '{':
+			return readObject();
+		case '[':
+			return readArray();
+		case '"':
+			return readString();
+		case 't':
+			return readLiteral("true", Boolean.TRUE);
+		case 'f':
+			return readLiteral("false", Boolean.FALSE);
+		case 'n':
+			return readLiteral("null", null);
+		default:
+			if (c == '-' || (c >= '0' && c <= '9')) {
+				return readNumber();
+			}
+			throw error("Unexpected character '" + c + "'");
+		}
+	}
+
+	private Map<String, Object> readObject() {
+		Map<String, Object> map = new LinkedHashMap<String, Object>();
+		pos++;
+		skipWhitespace();
+		if (peek() == '}') {
+			pos++;
+			return map;
+		}
+		while (true) {
+			skipWhitespace();
+			if (peek() != '"') {
+				throw error("Expected member name");
+			}
+			String name = readString();
+			skipWhitespace();
+			expect(':');
+			map.put(name, readValue());
+			skipWhitespace();
+			if (peek() == ',') {
+				pos++;
+			} else {
+				expect('}');
+				return map;
+			}
+		}
+	}
+
+	private List<Object> readArray() {
+		List<Object> list = new ArrayList<Object>();
+		pos++;
+		skipWhitespace();
+		if (peek() == ']') {
+			pos++;
+			return list;
+		}
+		while (true) {
+			list.add(readValue());
+			skipWhitespace();
+			if (peek() == ',') {
+				pos++;
+			} else {
+				expect(']');
+				return list;
+			}
+		}
+	}
+
+	private String readString() {
+		pos++;
+		StringBuilder sb = new StringBuilder();
+		while (pos < json.length()) {
+			char c = json.charAt(pos++);
+			if (c == '"') {
+				return sb.toString();
+			}
+			if (c != '\\') {
+				sb.append(c);
+				continue;
+			}
+			if (pos >= json.length()) {
+				break;
+			}
+			char escaped = json.charAt(pos++);
+			switch (escaped) {
+			case 'b':
+				sb.append('\b');
+				break;
+			case 'f':
+				sb.append('\f');
+				break;
+			case 'n':
+				sb.append('\n');
+				break;
+			case 'r':
+				sb.append('\r');
+				break;
+			case 't':
+				sb.append('\t');
+				break;
+			case 'u':
+				if (pos + 4 > json.length()) {
+					throw error("Invalid unicode escape");
+				}
+				try {
+					sb.append((char)Integer.parseInt(json.substring(pos, pos + 4), 16));
+				} catch (NumberFormatException exc) {
+					throw error("Invalid unicode escape");
+				}
+				pos += 4;
+				break;
+			default:
+				sb.append(escaped);
+			}
+		}
+		throw error("Unterminated string");
+	}
+
+	private BigDecimal readNumber() {
+		int start = pos;
+		while (pos < json.length() && "+-0123456789.eE".indexOf(json.charAt(pos)) >= 0) {
+			pos++;
+		}
+		try {
+			return new BigDecimal(json.substring(start, pos));
+		} catch (NumberFormatException exc) {
+			throw error("Invalid number");
+		}
+	}
+
+	private Object readLiteral(String literal, Object value) {
+		if (!json.startsWith(literal, pos)) {
+			throw error("Unexpected literal");
+		}
+		pos += literal.length();
+		return value;
+	}
+
+	private void expect(char c) {
+		if (peek() != c) {
+			throw error("Expected '" + c + "'");
+		}
+		pos++;
+	}
+
+	private char peek() {
+		return pos < json.length() ? json.charAt(pos) : 0;
+	}
+
+	private void skipWhitespace() {
+		while (pos < json.length() && Character.isWhitespace(json.charAt(pos))) {
+			pos++;
+		}
+	}
+
+	private IllegalArgumentException error(String message) {
+		return new IllegalArgumentException(message + " at position " + pos);
+	}
+}
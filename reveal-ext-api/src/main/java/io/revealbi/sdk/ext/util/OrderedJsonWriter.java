@@ -0,0 +1,97 @@
+package io.revealbi.sdk.ext.util;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Serializes the plain Java objects returned by {@link OrderedJsonParser} (maps, lists, strings, numbers, booleans and null)
+ * back to JSON, writing object members in the order of the map and keeping members with null values, which JSON-B
+ * providers either skip or, in some versions, write dropping the members after them.
+ */
+public final class OrderedJsonWriter {
+	private OrderedJsonWriter() {
+	}
+
+	/**
+	 * Returns the JSON text for the given value.
+	 * @throws IllegalArgumentException If the value contains objects that are not plain JSON values.
+	 */
+	public static String toJson(Object value) {
+		StringBuilder sb = new StringBuilder();
+		write(sb, value);
+		return sb.toString();
+	}
+
+	private static void write(StringBuilder sb, Object value) {
+		if (value == null) {
+			sb.append("null");
+		} else if (value instanceof String) {
+			writeString(sb, (String)value);
+		} else if (value instanceof Number || value instanceof Boolean) {
+			sb.append(value.toString());
+		} else if (value instanceof Map) {
+			sb.append('{');
+			boolean first = true;
+			for (Map.Entry<?, ?> entry : ((Map<?, ?>)value).entrySet()) {
+				if (!first) {
+					sb.append(',');
+				}
+				first = false;
+				writeString(sb, String.valueOf(entry.getKey()));
+				sb.append(':');
+				write(sb, entry.getValue());
+			}
+			sb.append('}');
+		} else if (value instanceof List) {
+			sb.append('[');
+			boolean first = true;
+			for (Object item : (List<?>)value) {
+				if (!first) {
+					sb.append(',');
+				}
+				first = false;
+				write(sb, item);
+			}
+			sb.append(']');
+		} else {
+			throw new IllegalArgumentException("Unsupported JSON value: " + value.getClass().getName());
+		}
+	}
+
+	private static void writeString(StringBuilder sb, String value) {
+		sb.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+			case '"':
+				sb.append("\\\"");
+				break;
+			case '\\':
+				sb.append("\\\\");
+				break;
+			case '\b':
+				sb.append("\\b");
+				break;
+			case '\f':
+				sb.append("\\f");
+				break;
+			case '\n':
+				sb.append("\\n");
+				break;
+			case '\r':
+				sb.append("\\r");
+				break;
+			case '\t':
+				sb.append("\\t");
+				break;
+			default:
+				if (c < 0x20) {
+					sb.append(String.format("\\u%04x", (int)c));
+				} else {
+					sb.append(c);
+				}
+			}
+		}
+		sb.append('"');
+	}
+}
@@ -0,0 +1,224 @@
+package io.revealbi.sdk.ext.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import com.infragistics.reportplus.dashboardmodel.DataSource;
+import com.infragistics.reportplus.datalayer.DashboardModelUtils;
+import com.infragistics.reveal.sdk.api.model.RVDashboardSummary;
+import com.infragistics.reveal.sdk.util.RVSerializationUtilities;
+
+/**
+ * Utility methods to work with "rdash" files, zip files containing the dashboard document ("{@value #DASHBOARD_ENTRY}")
+ * and other resources like images, and with the content of dashboard documents.
+ */
+public final class RdashUtilities {
+	private static Logger log = Logger.getLogger(RdashUtilities.class.getSimpleName());
+	
+	public static final String DASHBOARD_ENTRY = "Dashboard.json";
+	private static final String DATA_SOURCES_ATTRIBUTE = "DataSources";
+	private static final String ID_ATTRIBUTE = "Id";
+
+	private RdashUtilities() {
+	}
+
+	/**
+	 * Returns the summary of the dashboard in the given file, reading only the dashboard document entry using the zip
+	 * central directory, instead of inflating all entries (like embedded images) as {@link RVSerializationUtilities#getDashboardSummary(InputStream)} does.
+	 * If the file doesn't contain the dashboard document, it's processed as a whole by {@link RVSerializationUtilities}.
+	 */
+	public static RVDashboardSummary getDashboardSummary(File rdashFile) throws IOException {
+		byte[] json = readDashboardJson(rdashFile);
+		if (json == null) {
+			try (InputStream in = new FileInputStream(rdashFile)) {
+				return RVSerializationUtilities.getDashboardSummary(in);
+			}
+		}
+		return RVSerializationUtilities.getDashboardSummary(createRdashStream(json));
+	}
+
+	/**
+	 * Returns the content of the dashboard document in the given file, or null if not found or it's not a valid zip file.
+	 * Only the central directory and the dashboard entry are read.
+	 */
+	public static byte[] readDashboardJson(File rdashFile) throws IOException {
+		ZipFile zipFile;
+		try {
+			zipFile = new ZipFile(rdashFile);
+		} catch (ZipException exc) {
+			return null;
+		}
+		try {
+			ZipEntry entry = findDashboardEntry(zipFile);
+			if (entry == null) {
+				return null;
+			}
+			try (InputStream in = zipFile.getInputStream(entry)) {
+				return readFully(in);
+			}
+		} finally {
+			zipFile.close();
+		}
+	}
+
+	/**
+	 * Returns the content of the dashboard document in the given "rdash" stream, or null if not found. Entries before the
+	 * dashboard document are skipped and the stream is not read after it, but the stream is not closed.
+	 */
+	public static byte[] readDashboardJson(InputStream rdashStream) throws IOException {
+		ZipInputStream zip = new ZipInputStream(rdashStream);
+		ZipEntry entry;
+		while ((entry = zip.getNextEntry()) != null) {
+			if (isDashboardEntry(entry)) {
+				return readFully(zip);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Writes to the given output a copy of the given "rdash" stream, with the dashboard document replaced by the given one.
+	 * Other entries are copied as they are, the dashboard document is added if not found.
+	 */
+	public static void replaceDashboardJson(InputStream rdashStream, OutputStream out, byte[] dashboardJson) throws IOException {
+		ZipInputStream in = new ZipInputStream(rdashStream);
+		ZipOutputStream zip = new ZipOutputStream(out);
+		boolean replaced = false;
+		byte[] buffer = new byte[8192];
+		ZipEntry entry;
+		while ((entry = in.getNextEntry()) != null) {
+			ZipEntry copy = new ZipEntry(entry.getName());
+			if (entry.getTime() != -1) {
+				copy.setTime(entry.getTime());
+			}
+			zip.putNextEntry(copy);
+			if (!replaced && isDashboardEntry(entry)) {
+				zip.write(dashboardJson);
+				replaced = true;
+			} else {
+				int read;
+				while ((read = in.read(buffer)) != -1) {
+					zip.write(buffer, 0, read);
+				}
+			}
+			zip.closeEntry();
+		}
+		if (!replaced) {
+			zip.putNextEntry(new ZipEntry(DASHBOARD_ENTRY));
+			zip.write(dashboardJson);
+			zip.closeEntry();
+		}
+		zip.finish();
+	}
+
+	/**
+	 * Creates a minimal "rdash" stream containing only the given dashboard document, stored without compression.
+	 */
+	public static InputStream createRdashStream(byte[] dashboardJson) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(dashboardJson.length + 256);
+		try (ZipOutputStream zip = new ZipOutputStream(out)) {
+			ZipEntry entry = new ZipEntry(DASHBOARD_ENTRY);
+			CRC32 crc = new CRC32();
+			crc.update(dashboardJson);
+			entry.setMethod(ZipEntry.STORED);
+			entry.setSize(dashboardJson.length);
+			entry.setCompressedSize(dashboardJson.length);
+			entry.setCrc(crc.getValue());
+			zip.putNextEntry(entry);
+			zip.write(dashboardJson);
+			zip.closeEntry();
+		}
+		return new ByteArrayInputStream(out.toByteArray());
+	}
+
+	/**
+	 * Returns the ids and unique identifiers of the data sources used in the given dashboard document ("Dashboard.json"),
+	 * unique identifiers are the ones used to associate credentials, see {@link DashboardModelUtils#getUniqueDataSourceIdentifierForCredentials(DataSource)}.
+	 * @throws IllegalArgumentException If the document is not valid JSON.
+	 */
+	public static Set<String> getDataSourceKeys(byte[] dashboardJson) {
+		Set<String> keys = new LinkedHashSet<String>();
+		Object document = OrderedJsonParser.parse(new String(dashboardJson, StandardCharsets.UTF_8));
+		if (!(document instanceof Map)) {
+			return keys;
+		}
+		Object dataSources = ((Map<?, ?>)document).get(DATA_SOURCES_ATTRIBUTE);
+		if (!(dataSources instanceof List)) {
+			return keys;
+		}
+		for (Object item : (List<?>)dataSources) {
+			if (!(item instanceof Map)) {
+				continue;
+			}
+			Map<?, ?> dataSource = (Map<?, ?>)item;
+			Object id = dataSource.get(ID_ATTRIBUTE);
+			if (id instanceof String) {
+				keys.add((String)id);
+			}
+			String uniqueIdentifier = getUniqueIdentifier(dataSource);
+			if (uniqueIdentifier != null) {
+				keys.add(uniqueIdentifier);
+			}
+		}
+		return keys;
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static String getUniqueIdentifier(Map<?, ?> dataSource) {
+		try {
+			return DashboardModelUtils.getUniqueDataSourceIdentifierForCredentials(new DataSource(new HashMap(dataSource)));
+		} catch (RuntimeException exc) {
+			log.log(Level.FINE, "Failed to get unique identifier for data source " + dataSource.get(ID_ATTRIBUTE), exc);
+			return null;
+		}
+	}
+
+	private static ZipEntry findDashboardEntry(ZipFile zipFile) {
+		ZipEntry entry = zipFile.getEntry(DASHBOARD_ENTRY);
+		if (entry != null) {
+			return entry;
+		}
+		Enumeration<? extends ZipEntry> entries = zipFile.entries();
+		while (entries.hasMoreElements()) {
+			entry = entries.nextElement();
+			if (isDashboardEntry(entry)) {
+				return entry;
+			}
+		}
+		return null;
+	}
+
+	private static boolean isDashboardEntry(ZipEntry entry) {
+		return !entry.isDirectory() && DASHBOARD_ENTRY.equalsIgnoreCase(entry.getName());
+	}
+
+	private static byte[] readFully(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int read;
+		while ((read = in.read(buffer)) != -1) {
+			out.write(buffer, 0, read);
+		}
+		return out.toByteArray();
+	}
+}
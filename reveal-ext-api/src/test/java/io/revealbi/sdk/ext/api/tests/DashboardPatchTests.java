@@ -0,0 +1,154 @@
+package io.revealbi.sdk.ext.api.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import io.revealbi.sdk.ext.api.DashboardPatch;
+import io.revealbi.sdk.ext.util.OrderedJsonParser;
+
+/**
+ * Examples from RFC 6902 (JSON patch) and RFC 7386 (JSON merge patch), Appendix A.
+ */
+public class DashboardPatchTests {
+
+	@Test
+	public void testJsonPatchAddObjectMember() {
+		assertJsonPatch("{\"foo\":\"bar\"}", "[{\"op\":\"add\",\"path\":\"/baz\",\"value\":\"qux\"}]", 
+				"{\"baz\":\"qux\",\"foo\":\"bar\"}");
+	}
+
+	@Test
+	public void testJsonPatchAddArrayElement() {
+		assertJsonPatch("{\"foo\":[\"bar\",\"baz\"]}", "[{\"op\":\"add\",\"path\":\"/foo/1\",\"value\":\"qux\"}]", 
+				"{\"foo\":[\"bar\",\"qux\",\"baz\"]}");
+	}
+
+	@Test
+	public void testJsonPatchRemoveObjectMember() {
+		assertJsonPatch("{\"baz\":\"qux\",\"foo\":\"bar\"}", "[{\"op\":\"remove\",\"path\":\"/baz\"}]", "{\"foo\":\"bar\"}");
+	}
+
+	@Test
+	public void testJsonPatchRemoveArrayElement() {
+		assertJsonPatch("{\"foo\":[\"bar\",\"qux\",\"baz\"]}", "[{\"op\":\"remove\",\"path\":\"/foo/1\"}]", "{\"foo\":[\"bar\",\"baz\"]}");
+	}
+
+	@Test
+	public void testJsonPatchReplace() {
+		assertJsonPatch("{\"baz\":\"qux\",\"foo\":\"bar\"}", "[{\"op\":\"replace\",\"path\":\"/baz\",\"value\":\"boo\"}]", 
+				"{\"baz\":\"boo\",\"foo\":\"bar\"}");
+	}
+
+	@Test
+	public void testJsonPatchMove() {
+		assertJsonPatch("{\"foo\":{\"bar\":\"baz\",\"waldo\":\"fred\"},\"qux\":{\"corge\":\"grault\"}}", 
+				"[{\"op\":\"move\",\"from\":\"/foo/waldo\",\"path\":\"/qux/thud\"}]", 
+				"{\"foo\":{\"bar\":\"baz\"},\"qux\":{\"corge\":\"grault\",\"thud\":\"fred\"}}");
+	}
+
+	@Test
+	public void testJsonPatchMoveArrayElement() {
+		assertJsonPatch("{\"foo\":[\"all\",\"grass\",\"cows\",\"eat\"]}", "[{\"op\":\"move\",\"from\":\"/foo/1\",\"path\":\"/foo/3\"}]", 
+				"{\"foo\":[\"all\",\"cows\",\"eat\",\"grass\"]}");
+	}
+
+	@Test
+	public void testJsonPatchTestSuccess() {
+		String document = "{\"baz\":\"qux\",\"foo\":[\"a\",2,\"c\"]}";
+		assertJsonPatch(document, "[{\"op\":\"test\",\"path\":\"/baz\",\"value\":\"qux\"},{\"op\":\"test\",\"path\":\"/foo/1\",\"value\":2}]", document);
+	}
+
+	@Test
+	public void testJsonPatchTestError() {
+		assertJsonPatchFails("{\"baz\":\"qux\"}", "[{\"op\":\"test\",\"path\":\"/baz\",\"value\":\"bar\"}]");
+	}
+
+	@Test
+	public void testJsonPatchAddNestedMemberObject() {
+		assertJsonPatch("{\"foo\":\"bar\"}", "[{\"op\":\"add\",\"path\":\"/child\",\"value\":{\"grandchild\":{}}}]", 
+				"{\"foo\":\"bar\",\"child\":{\"grandchild\":{}}}");
+	}
+
+	@Test
+	public void testJsonPatchIgnoreUnrecognizedElements() {
+		assertJsonPatch("{\"foo\":\"bar\"}", "[{\"op\":\"add\",\"path\":\"/baz\",\"value\":\"qux\",\"xyz\":123}]", 
+				"{\"foo\":\"bar\",\"baz\":\"qux\"}");
+	}
+
+	@Test
+	public void testJsonPatchAddToNonexistentTarget() {
+		assertJsonPatchFails("{\"foo\":\"bar\"}", "[{\"op\":\"add\",\"path\":\"/baz/bat\",\"value\":\"qux\"}]");
+	}
+
+	@Test
+	public void testJsonPatchInvalidDocument() {
+		assertJsonPatchFails("{\"foo\":\"bar\"}", "[{\"op\":\"add\",\"path\":\"/baz\",\"value\":\"qux\",\"op\":\"remove\"}]");
+	}
+
+	@Test
+	public void testJsonPatchEscapeOrdering() {
+		String document = "{\"/\":9,\"~1\":10}";
+		assertJsonPatch(document, "[{\"op\":\"test\",\"path\":\"/~01\",\"value\":10}]", document);
+	}
+
+	@Test
+	public void testJsonPatchCompareStringsAndNumbers() {
+		assertJsonPatchFails("{\"/\":9,\"~1\":10}", "[{\"op\":\"test\",\"path\":\"/~01\",\"value\":\"10\"}]");
+	}
+
+	@Test
+	public void testJsonPatchAddArrayValue() {
+		assertJsonPatch("{\"foo\":[\"bar\"]}", "[{\"op\":\"add\",\"path\":\"/foo/-\",\"value\":[\"abc\",\"def\"]}]", 
+				"{\"foo\":[\"bar\",[\"abc\",\"def\"]]}");
+	}
+
+	@Test
+	public void testMergePatch() {
+		assertMergePatch("{\"a\":\"b\"}", "{\"a\":\"c\"}", "{\"a\":\"c\"}");
+		assertMergePatch("{\"a\":\"b\"}", "{\"b\":\"c\"}", "{\"a\":\"b\",\"b\":\"c\"}");
+		assertMergePatch("{\"a\":\"b\"}", "{\"a\":null}", "{}");
+		assertMergePatch("{\"a\":\"b\",\"b\":\"c\"}", "{\"a\":null}", "{\"b\":\"c\"}");
+		assertMergePatch("{\"a\":[\"b\"]}", "{\"a\":\"c\"}", "{\"a\":\"c\"}");
+		assertMergePatch("{\"a\":\"c\"}", "{\"a\":[\"b\"]}", "{\"a\":[\"b\"]}");
+		assertMergePatch("{\"a\":{\"b\":\"c\"}}", "{\"a\":{\"b\":\"d\",\"c\":null}}", "{\"a\":{\"b\":\"d\"}}");
+		assertMergePatch("{\"a\":[{\"b\":\"c\"}]}", "{\"a\":[1]}", "{\"a\":[1]}");
+		assertMergePatch("[\"a\",\"b\"]", "[\"c\",\"d\"]", "[\"c\",\"d\"]");
+		assertMergePatch("{\"a\":\"b\"}", "[\"c\"]", "[\"c\"]");
+		assertMergePatch("{\"a\":\"foo\"}", "null", "null");
+		assertMergePatch("{\"a\":\"foo\"}", "\"bar\"", "\"bar\"");
+		assertMergePatch("{\"e\":null}", "{\"a\":1}", "{\"e\":null,\"a\":1}");
+		assertMergePatch("[1,2]", "{\"a\":\"b\",\"c\":null}", "{\"a\":\"b\"}");
+		assertMergePatch("{}", "{\"a\":{\"bb\":{\"ccc\":null}}}", "{\"a\":{\"bb\":{}}}");
+	}
+
+	@Test
+	public void testEscapedStrings() {
+		String value = "{\"a\":\"quote \\\" backslash \\\\ line\\n control \\u0001 unicode \\u00e9\"}";
+		assertMergePatch("{\"a\":null,\"b\":1}", value, value.replace("}", ",\"b\":1}"));
+	}
+
+	private static void assertJsonPatch(String document, String patch, String expected) {
+		assertPatch(DashboardPatch.JSON_PATCH_MEDIA_TYPE, document, patch, expected);
+	}
+
+	private static void assertMergePatch(String document, String patch, String expected) {
+		assertPatch(DashboardPatch.MERGE_PATCH_MEDIA_TYPE, document, patch, expected);
+	}
+
+	private static void assertPatch(String mediaType, String document, String patch, String expected) {
+		byte[] result = DashboardPatch.parse(mediaType, patch).apply(document.getBytes(StandardCharsets.UTF_8));
+		assertEquals(OrderedJsonParser.parse(expected), OrderedJsonParser.parse(new String(result, StandardCharsets.UTF_8)));
+	}
+
+	private static void assertJsonPatchFails(String document, String patch) {
+		try {
+			DashboardPatch.parse(DashboardPatch.JSON_PATCH_MEDIA_TYPE, patch).apply(document.getBytes(StandardCharsets.UTF_8));
+			fail("Patch should fail: " + patch);
+		} catch (IllegalArgumentException | IllegalStateException exc) {
+		}
+	}
+}
@@ -0,0 +1,95 @@
+package io.revealbi.sdk.ext.base.tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.infragistics.reveal.sdk.api.IRVUserContext;
+
+import io.revealbi.sdk.ext.base.BaseDashboardRepository;
+
+public class BaseDashboardRepositoryTests {
+
+	@Test
+	public void testDependenciesIndexedAgainAfterError() throws Exception {
+		FailingRepository repository = new FailingRepository();
+		IRVUserContext user = createUserContext("user");
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		repository.setDependencyIndexExecutor(executor);
+		repository.buildDataSourceDependencyIndex(user);
+		executor.shutdown();
+		executor.awaitTermination(10, TimeUnit.SECONDS);
+
+		repository.changed("user", "d1");
+		repository.changed("user", "d2");
+		repository.failures = 1;
+		try {
+			repository.getDataSourceDependencies(user, "ds1");
+			fail("expected IOException");
+		} catch (IOException exc) {
+		}
+		assertArrayEquals(new String[] { "d1", "d2" }, repository.getDataSourceDependencies(user, "ds1").getDashboardIds());
+	}
+
+	private static IRVUserContext createUserContext(String userId) {
+		return new IRVUserContext() {
+			@Override
+			public String getUserId() {
+				return userId;
+			}
+
+			@Override
+			public Map<String, Object> getProperties() {
+				return null;
+			}
+		};
+	}
+
+	/**
+	 * Repository where all dashboards use the data source "ds1", failing to read the given number of dashboards.
+	 */
+	private static class FailingRepository extends BaseDashboardRepository {
+		int failures;
+
+		void changed(String userId, String dashboardId) {
+			dashboardChanged(userId, dashboardId);
+		}
+
+		@Override
+		protected Set<String> getDataSourceKeys(IRVUserContext userContext, String dashboardId) throws IOException {
+			if (failures > 0) {
+				failures--;
+				throw new IOException("Failed to read " + dashboardId);
+			}
+			return Collections.singleton("ds1");
+		}
+
+		@Override
+		protected String[] getUserDashboardIds(String userId) throws IOException {
+			return new String[0];
+		}
+
+		@Override
+		public InputStream getDashboard(IRVUserContext userContext, String dashboardId) throws IOException {
+			return null;
+		}
+
+		@Override
+		public void saveDashboard(IRVUserContext userContext, String dashboardId, InputStream dashboardStream) throws IOException {
+		}
+
+		@Override
+		public void deleteDashboard(IRVUserContext userContext, String dashboardId) throws IOException {
+		}
+	}
+}
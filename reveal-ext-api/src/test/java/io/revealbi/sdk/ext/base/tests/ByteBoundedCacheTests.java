@@ -0,0 +1,72 @@
+package io.revealbi.sdk.ext.base.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import io.revealbi.sdk.ext.base.ByteBoundedCache;
+
+public class ByteBoundedCacheTests {
+
+	@Test
+	public void testSizeBound() {
+		ByteBoundedCache<String, String> cache = new ByteBoundedCache<String, String>(1000);
+		for (int i = 0; i < 100; i++) {
+			cache.get("key" + i);
+			cache.put("key" + i, "value" + i, 100);
+			assertTrue(cache.getSize() <= 1000);
+		}
+		assertTrue(cache.getEvictionCount() + cache.getRejectionCount() > 0);
+	}
+
+	@Test
+	public void testLargeEntryRejected() {
+		ByteBoundedCache<String, String> cache = new ByteBoundedCache<String, String>(1000);
+		cache.put("large", "value", 2000);
+		assertNull(cache.get("large"));
+		assertEquals(1, cache.getRejectionCount());
+		assertEquals(0, cache.getSize());
+	}
+
+	@Test
+	public void testFrequentEntriesSurviveScan() {
+		ByteBoundedCache<String, String> cache = new ByteBoundedCache<String, String>(1000);
+		for (int i = 0; i < 5; i++) {
+			cache.get("popular" + i);
+			cache.put("popular" + i, "value", 150);
+		}
+		for (int n = 0; n < 10; n++) {
+			for (int i = 0; i < 5; i++) {
+				assertNotNull(cache.get("popular" + i));
+			}
+		}
+		// a scan through entries requested only once must not evict the popular ones
+		for (int i = 0; i < 100; i++) {
+			cache.get("scan" + i);
+			cache.put("scan" + i, "value", 150);
+		}
+		for (int i = 0; i < 5; i++) {
+			assertNotNull(cache.get("popular" + i));
+		}
+		assertTrue(cache.getRejectionCount() > 0);
+	}
+
+	@Test
+	public void testStats() {
+		ByteBoundedCache<String, String> cache = new ByteBoundedCache<String, String>(1000);
+		assertNull(cache.get("key"));
+		cache.put("key", "value", 10);
+		assertEquals("value", cache.get("key"));
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+		assertEquals(0.5, cache.getHitRate(), 0.0001);
+
+		cache.remove("key");
+		assertNull(cache.get("key"));
+		assertEquals(0, cache.getSize());
+		assertEquals(0, cache.getEntryCount());
+	}
+}
@@ -0,0 +1,124 @@
+package io.revealbi.sdk.ext.base.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.infragistics.reveal.sdk.api.IRVUserContext;
+
+import io.revealbi.sdk.ext.api.DashboardInfo;
+import io.revealbi.sdk.ext.api.IDashboardRepository;
+import io.revealbi.sdk.ext.base.CachingDashboardRepository;
+
+public class CachingDashboardRepositoryTests {
+
+	@Test
+	public void testDashboardsCached() throws IOException {
+		CountingRepository repository = new CountingRepository();
+		CachingDashboardRepository cache = new CachingDashboardRepository(repository);
+		IRVUserContext user = createUserContext("user");
+		cache.saveDashboard(user, "d1", toStream("v1"));
+		assertEquals("v1", read(cache.getDashboard(user, "d1")));
+		assertEquals("v1", read(cache.getDashboard(user, "d1")));
+		assertEquals(1, repository.loads);
+	}
+
+	@Test
+	public void testSaveInvalidatesAllUsers() throws IOException {
+		CountingRepository repository = new CountingRepository();
+		CachingDashboardRepository cache = new CachingDashboardRepository(repository);
+		IRVUserContext user1 = createUserContext("user1");
+		IRVUserContext user2 = createUserContext("user2");
+		cache.saveDashboard(user1, "d1", toStream("v1"));
+		assertEquals("v1", read(cache.getDashboard(user2, "d1")));
+		cache.saveDashboard(user1, "d1", toStream("v2"));
+		assertEquals("v2", read(cache.getDashboard(user2, "d1")));
+		cache.deleteDashboard(user1, "d1");
+		assertNull(cache.getDashboard(user2, "d1"));
+	}
+
+	@Test
+	public void testTtl() throws Exception {
+		CountingRepository repository = new CountingRepository();
+		CachingDashboardRepository cache = new CachingDashboardRepository(repository);
+		cache.setTtl(10);
+		IRVUserContext user = createUserContext("user");
+		cache.saveDashboard(user, "d1", toStream("v1"));
+		read(cache.getDashboard(user, "d1"));
+		Thread.sleep(50);
+		read(cache.getDashboard(user, "d1"));
+		assertEquals(2, repository.loads);
+	}
+
+	private static IRVUserContext createUserContext(String userId) {
+		return new IRVUserContext() {
+			@Override
+			public String getUserId() {
+				return userId;
+			}
+
+			@Override
+			public Map<String, Object> getProperties() {
+				return null;
+			}
+		};
+	}
+
+	private static InputStream toStream(String content) {
+		return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static String read(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[1024];
+		int read;
+		while ((read = in.read(buffer)) != -1) {
+			out.write(buffer, 0, read);
+		}
+		return new String(out.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Shared repository (the same dashboards for all users) counting the number of times dashboards are loaded.
+	 */
+	private static class CountingRepository implements IDashboardRepository {
+		private final Map<String, String> dashboards = new HashMap<String, String>();
+		int loads;
+
+		@Override
+		public synchronized InputStream getDashboard(IRVUserContext userContext, String dashboardId) throws IOException {
+			loads++;
+			String content = dashboards.get(dashboardId);
+			return content == null ? null : toStream(content);
+		}
+
+		@Override
+		public synchronized void saveDashboard(IRVUserContext userContext, String dashboardId, InputStream dashboardStream) throws IOException {
+			dashboards.put(dashboardId, read(dashboardStream));
+		}
+
+		@Override
+		public synchronized void deleteDashboard(IRVUserContext userContext, String dashboardId) throws IOException {
+			dashboards.remove(dashboardId);
+		}
+
+		@Override
+		public DashboardInfo[] getUserDashboards(IRVUserContext userContext) throws IOException {
+			return new DashboardInfo[0];
+		}
+
+		@Override
+		public synchronized String[] getDashboardIdList(IRVUserContext userContext) throws IOException {
+			return dashboards.keySet().toArray(new String[0]);
+		}
+	}
+}
@@ -0,0 +1,69 @@
+package io.revealbi.sdk.ext.base.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import io.revealbi.sdk.ext.api.ChangeEvent;
+import io.revealbi.sdk.ext.api.ChangesPage;
+import io.revealbi.sdk.ext.base.ChangeLog;
+
+public class ChangeLogTests {
+
+	@Test
+	public void testChangesSinceToken() {
+		ChangeLog changeLog = new ChangeLog(10);
+		ChangesPage first = changeLog.getChanges("user1", null, 100);
+		assertTrue(first.isReset());
+		assertEquals(0, first.getChanges().length);
+
+		changeLog.record("user1", ChangeEvent.ResourceType.DASHBOARD, ChangeEvent.Action.SAVED, "d1");
+		changeLog.record("user2", ChangeEvent.ResourceType.DASHBOARD, ChangeEvent.Action.SAVED, "d2");
+		changeLog.record(null, ChangeEvent.ResourceType.DATA_SOURCE, ChangeEvent.Action.DELETED, "ds1");
+
+		ChangesPage page = changeLog.getChanges("user1", first.getToken(), 100);
+		assertFalse(page.isReset());
+		assertFalse(page.isMore());
+		assertEquals(2, page.getChanges().length);
+		assertEquals("d1", page.getChanges()[0].getId());
+		assertEquals("ds1", page.getChanges()[1].getId());
+		assertEquals(ChangeEvent.Action.DELETED, page.getChanges()[1].getAction());
+
+		ChangesPage empty = changeLog.getChanges("user1", page.getToken(), 100);
+		assertEquals(0, empty.getChanges().length);
+		assertEquals(page.getToken(), empty.getToken());
+	}
+
+	@Test
+	public void testMaxResults() {
+		ChangeLog changeLog = new ChangeLog(10);
+		String token = changeLog.getCurrentToken();
+		for (int i = 0; i < 5; i++) {
+			changeLog.record(null, ChangeEvent.ResourceType.DASHBOARD, ChangeEvent.Action.SAVED, "d" + i);
+		}
+		ChangesPage page = changeLog.getChanges("user", token, 3);
+		assertEquals(3, page.getChanges().length);
+		assertTrue(page.isMore());
+		page = changeLog.getChanges("user", page.getToken(), 3);
+		assertEquals(2, page.getChanges().length);
+		assertEquals("d4", page.getChanges()[1].getId());
+		assertFalse(page.isMore());
+	}
+
+	@Test
+	public void testResetWhenChangesNotAvailable() {
+		ChangeLog changeLog = new ChangeLog(3);
+		String token = changeLog.getCurrentToken();
+		for (int i = 0; i < 4; i++) {
+			changeLog.record(null, ChangeEvent.ResourceType.DASHBOARD, ChangeEvent.Action.SAVED, "d" + i);
+		}
+		ChangesPage page = changeLog.getChanges("user", token, 100);
+		assertTrue(page.isReset());
+		assertEquals(changeLog.getCurrentToken(), page.getToken());
+
+		assertTrue(changeLog.getChanges("user", new ChangeLog(3).getCurrentToken(), 100).isReset());
+		assertTrue(changeLog.getChanges("user", "invalid", 100).isReset());
+	}
+}
@@ -0,0 +1,62 @@
+package io.revealbi.sdk.ext.base.tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+import io.revealbi.sdk.ext.base.DataSourceDependencyIndex;
+import io.revealbi.sdk.ext.util.RdashUtilities;
+
+public class DataSourceDependencyIndexTests {
+
+	@Test
+	public void testDataSourceKeys() {
+		String json = "{\"Title\":\"Sales\",\"DataSources\":[{\"Id\":\"ds1\",\"Provider\":\"SQLSERVER\"},{\"Id\":\"ds2\",\"Provider\":\"POSTGRES\"}]}";
+		Set<String> keys = RdashUtilities.getDataSourceKeys(json.getBytes(StandardCharsets.UTF_8));
+		assertTrue(keys.contains("ds1"));
+		assertTrue(keys.contains("ds2"));
+		assertTrue(RdashUtilities.getDataSourceKeys("{\"Title\":\"Empty\"}".getBytes(StandardCharsets.UTF_8)).isEmpty());
+	}
+
+	@Test
+	public void testPutAndRemove() {
+		DataSourceDependencyIndex index = new DataSourceDependencyIndex();
+		index.put("d2", keys("ds1", "ds2"));
+		index.put("d1", keys("ds1"));
+		assertArrayEquals(new String[] { "d1", "d2" }, index.getDashboardIds("ds1"));
+		assertArrayEquals(new String[] { "d2" }, index.getDashboardIds("ds2"));
+
+		index.put("d2", keys("ds3"));
+		assertArrayEquals(new String[] { "d1" }, index.getDashboardIds("ds1"));
+		assertEquals(0, index.getDashboardIds("ds2").length);
+
+		index.remove("d1");
+		assertEquals(0, index.getDashboardIds("ds1").length);
+	}
+
+	@Test
+	public void testInvalidatedNotReplacedByBuild() {
+		DataSourceDependencyIndex index = new DataSourceDependencyIndex();
+		index.invalidate("d1");
+		assertFalse(index.putIfAbsent("d1", keys("old")));
+		assertEquals(Collections.singletonList("d1"), index.takePendingIds());
+		index.put("d1", keys("new"));
+		assertFalse(index.putIfAbsent("d1", keys("old")));
+		assertArrayEquals(new String[] { "d1" }, index.getDashboardIds("new"));
+		assertEquals(0, index.getDashboardIds("old").length);
+		assertTrue(index.putIfAbsent("d2", keys("old")));
+	}
+
+	private static Set<String> keys(String... keys) {
+		return new HashSet<String>(Arrays.asList(keys));
+	}
+}
@@ -0,0 +1,359 @@
+package io.revealbi.sdk.ext.fs;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.infragistics.controls.IOUtils;
+
+/**
+ * Content-addressed store used by {@link FileSystemDashboardRepository} to keep a single copy of identical dashboards,
+ * like sample dashboards installed for each user.
+ * The content of each dashboard is stored once in the blobs directory, named after its SHA-256 hash, and dashboard files
+ * are created as hard links to those blobs. This way dashboard files can still be read (and served) as regular files,
+ * while the link count maintained by the file system is used as the reference count of each blob: when a dashboard
+ * file is deleted and the blob is no longer linked from any other file it's deleted too.
+ * Hard links require a file system supporting them, and the blobs directory must be in the same file system than
+ * the dashboards, see {@link #isSupported()}.
+ * As links share the file attributes of the blob, the last modified time of a dashboard file is the time the blob was
+ * created. The hash of the blob and the time each dashboard was saved are kept in a hidden file next to the dashboard
+ * file (".{name}{@value #LINK_FILE_SUFFIX}"), see {@link #getLink(File)}, so the blob is found without hashing the file
+ * and each dashboard has its own version and last modified time.
+ */
+public class DashboardBlobStore {
+	private static Logger log = Logger.getLogger(DashboardBlobStore.class.getSimpleName());
+
+	private static final String NLINK_ATTRIBUTE = "unix:nlink";
+	private static final String TMP_PREFIX = "tmp-";
+	private static final String LINK_FILE_SUFFIX = ".link";
+	// temporary files are written while the content is uploaded, so only the ones not modified for this long were abandoned
+	private static final long TMP_FILE_MAX_AGE = 24 * 60 * 60 * 1000L;
+
+	private final File blobsDir;
+	private volatile boolean linksSupported;
+	private volatile GroupCommitSync sync;
+
+	/**
+	 * Link from a dashboard file to the blob with its content.
+	 */
+	public static class Link {
+		private final String hash;
+		private final long saveTime;
+
+		Link(String hash, long saveTime) {
+			this.hash = hash;
+			this.saveTime = saveTime;
+		}
+
+		/**
+		 * Returns the SHA-256 hash of the content, the name of the blob.
+		 */
+		public String getHash() {
+			return hash;
+		}
+
+		/**
+		 * Returns the time the dashboard was saved, in milliseconds since the epoch.
+		 */
+		public long getSaveTime() {
+			return saveTime;
+		}
+	}
+
+	public DashboardBlobStore(File blobsDir) {
+		this.blobsDir = blobsDir;
+		this.linksSupported = FileSystems.getDefault().supportedFileAttributeViews().contains("unix");
+	}
+
+	/**
+	 * Returns true if hard links and link counts are supported, if not the repository must store dashboards as regular files.
+	 */
+	public boolean isSupported() {
+		return linksSupported;
+	}
+
+	/**
+	 * Sets the object used to force new blobs and links to the storage device, null (the default) to leave it to the 
+	 * operating system.
+	 */
+	public void setSync(GroupCommitSync sync) {
+		this.sync = sync;
+	}
+
+	/**
+	 * Stores the given content as a blob (if not already stored) and creates (or replaces) the target file as a link to it.
+	 * The target file is replaced atomically, so readers see either the previous or the new content.
+	 * @param in The content of the dashboard.
+	 * @param target The dashboard file.
+	 * @throws IOException if the content can't be stored, if the link can't be created the content is copied to the target file.
+	 */
+	public void save(InputStream in, File target) throws IOException {
+		blobsDir.mkdirs();
+		File tmpFile = File.createTempFile(TMP_PREFIX, null, blobsDir);
+		String hash;
+		try {
+			MessageDigest digest = createDigest();
+			try (OutputStream out = new DigestOutputStream(new FileOutputStream(tmpFile), digest)) {
+				IOUtils.copy(in, out);
+			}
+			hash = toHex(digest.digest());
+			GroupCommitSync s = sync;
+			if (s != null) {
+				s.sync(tmpFile.toPath());
+			}
+		} catch (IOException | RuntimeException exc) {
+			tmpFile.delete();
+			throw exc;
+		}
+		File blob = getBlobFile(hash);
+		File link = getTempFile(target);
+		boolean linked = true;
+		synchronized (this) {
+			blob.getParentFile().mkdirs();
+			try {
+				// not replacing an existing blob, as dashboards are linked to it
+				Files.move(tmpFile.toPath(), blob.toPath());
+			} catch (FileAlreadyExistsException exc) {
+				tmpFile.delete();
+			}
+			try {
+				// the new link keeps the blob in use until it replaces the target
+				Files.createLink(link.toPath(), blob.toPath());
+			} catch (IOException | UnsupportedOperationException exc) {
+				log.log(Level.WARNING, "Failed to create link to " + blob + ", dashboards will be stored without deduplication", exc);
+				linksSupported = false;
+				linked = false;
+				Files.copy(blob.toPath(), link.toPath(), StandardCopyOption.REPLACE_EXISTING);
+				deleteIfUnused(blob);
+			}
+		}
+		// not setting the last modified time of the link, it's the same file as the blob and all other links to it
+		replace(link, target, linked ? new Link(hash, System.currentTimeMillis()) : null);
+	}
+
+	/**
+	 * Atomically replaces the target file with the given source file, that must be in the same directory, deleting the 
+	 * blob the target file was linked to if no longer used.
+	 */
+	public void replace(File source, File target) throws IOException {
+		replace(source, target, null);
+	}
+
+	/**
+	 * Replaces the target file, writing the link file before so the target is never linked to a blob not recorded there. 
+	 * If the replace fails after writing it, {@link #getLink(File)} detects the link file doesn't match the target.
+	 */
+	private void replace(File source, File target, Link link) throws IOException {
+		File previousBlob = getLinkedBlob(target);
+		if (link != null) {
+			writeLinkFile(target, link);
+		} else {
+			Files.deleteIfExists(getLinkFile(target).toPath());
+		}
+		synchronized (this) {
+			if (target.exists() && Files.isSameFile(source.toPath(), target.toPath())) {
+				// both are links to the same blob, renaming one link to the other would do nothing
+				Files.delete(source.toPath());
+			} else {
+				Files.move(source.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			}
+			if (previousBlob != null) {
+				deleteIfUnused(previousBlob);
+			}
+		}
+		GroupCommitSync s = sync;
+		if (s != null) {
+			s.sync(target.getParentFile().toPath());
+		}
+	}
+
+	/**
+	 * Returns a new temporary file in the same directory as the given file, for writing its new content before replacing it.
+	 * Temporary files are hidden and don't have the dashboard extension, so they're never listed as dashboards.
+	 */
+	static File getTempFile(File file) throws IOException {
+		File dir = file.getParentFile();
+		dir.mkdirs();
+		File tmpFile = File.createTempFile("." + file.getName() + "." + TMP_PREFIX, ".tmp", dir);
+		// only the name is needed, links must be created on a new path
+		tmpFile.delete();
+		return tmpFile;
+	}
+
+	/**
+	 * Deletes the given dashboard file and the blob it's linked to, if no other file is linked to it.
+	 */
+	public void delete(File file) throws IOException {
+		if (!file.exists()) {
+			return;
+		}
+		File blob = getLinkedBlob(file);
+		synchronized (this) {
+			Files.deleteIfExists(file.toPath());
+			Files.deleteIfExists(getLinkFile(file).toPath());
+			if (blob != null) {
+				deleteIfUnused(blob);
+			}
+		}
+	}
+
+	/**
+	 * Deletes all blobs not linked from any dashboard file, like blobs whose dashboards were deleted externally, and the 
+	 * temporary files left by interrupted saves. Temporary files modified in the last 24 hours are kept, as saves write 
+	 * them without holding the lock of the store.
+	 * @return The number of blobs deleted.
+	 */
+	public synchronized int collectGarbage() {
+		int count = 0;
+		File[] dirs = blobsDir.listFiles();
+		if (dirs == null) {
+			return 0;
+		}
+		for (File dir : dirs) {
+			File[] blobs = dir.isDirectory() ? dir.listFiles() : null;
+			if (blobs == null) {
+				if (dir.getName().startsWith(TMP_PREFIX) && System.currentTimeMillis() - dir.lastModified() > TMP_FILE_MAX_AGE) {
+					// left by an interrupted save
+					dir.delete();
+				}
+				continue;
+			}
+			for (File blob : blobs) {
+				if (deleteIfUnused(blob)) {
+					count++;
+				}
+			}
+			dir.delete();
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the link from the given dashboard file to its blob, with the time the dashboard was saved, or null if the
+	 * file is not a link to a blob or it was not saved by this store, like dashboards saved before enabling deduplication.
+	 */
+	public Link getLink(File file) throws IOException {
+		if (getLinkCount(file) <= 1) {
+			return null;
+		}
+		Link link = readLinkFile(file);
+		return link != null && isLinkedTo(file, getBlobFile(link.getHash())) ? link : null;
+	}
+
+	/**
+	 * Returns the blob the given file is linked to, or null if it's not a link to a blob. The blob is found using
+	 * the link file, the content is hashed only for files without a valid one.
+	 */
+	private File getLinkedBlob(File file) throws IOException {
+		if (!file.exists() || getLinkCount(file) <= 1) {
+			return null;
+		}
+		Link link = readLinkFile(file);
+		if (link != null && isLinkedTo(file, getBlobFile(link.getHash()))) {
+			return getBlobFile(link.getHash());
+		}
+		File blob = getBlobFile(getHash(file));
+		return isLinkedTo(file, blob) ? blob : null;
+	}
+
+	private static boolean isLinkedTo(File file, File blob) throws IOException {
+		try {
+			return Files.isSameFile(blob.toPath(), file.toPath());
+		} catch (NoSuchFileException exc) {
+			return false;
+		}
+	}
+
+	private static File getLinkFile(File file) {
+		return new File(file.getParentFile(), "." + file.getName() + LINK_FILE_SUFFIX);
+	}
+
+	private void writeLinkFile(File file, Link link) throws IOException {
+		File linkFile = getLinkFile(file);
+		File tmpFile = getTempFile(linkFile);
+		try {
+			Files.write(tmpFile.toPath(), (link.getHash() + "\n" + link.getSaveTime() + "\n").getBytes(StandardCharsets.UTF_8));
+			GroupCommitSync s = sync;
+			if (s != null) {
+				s.sync(tmpFile.toPath());
+			}
+			Files.move(tmpFile.toPath(), linkFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			Files.deleteIfExists(tmpFile.toPath());
+		}
+	}
+
+	private static Link readLinkFile(File file) {
+		try {
+			String[] lines = new String(Files.readAllBytes(getLinkFile(file).toPath()), StandardCharsets.UTF_8).split("\n");
+			return lines.length < 2 ? null : new Link(lines[0].trim(), Long.parseLong(lines[1].trim()));
+		} catch (NoSuchFileException exc) {
+			return null;
+		} catch (IOException | NumberFormatException exc) {
+			log.log(Level.FINE, "Invalid link file for " + file, exc);
+			return null;
+		}
+	}
+
+	private boolean deleteIfUnused(File blob) {
+		if (getLinkCount(blob) == 1) {
+			return blob.delete();
+		}
+		return false;
+	}
+
+	private File getBlobFile(String hash) {
+		return new File(new File(blobsDir, hash.substring(0, 2)), hash);
+	}
+
+	private static int getLinkCount(File file) {
+		try {
+			Object count = Files.getAttribute(file.toPath(), NLINK_ATTRIBUTE);
+			return count instanceof Number ? ((Number)count).intValue() : -1;
+		} catch (IOException | UnsupportedOperationException | IllegalArgumentException exc) {
+			return -1;
+		}
+	}
+
+	private static String getHash(File file) throws IOException {
+		MessageDigest digest = createDigest();
+		byte[] buffer = new byte[8192];
+		try (InputStream in = new DigestInputStream(new FileInputStream(file), digest)) {
+			while (in.read(buffer) != -1) {
+				// just reading to compute the digest
+			}
+		}
+		return toHex(digest.digest());
+	}
+
+	private static MessageDigest createDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+		StringBuilder sb = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes) {
+			sb.append(String.format("%02x", b));
+		}
+		return sb.toString();
+	}
+}
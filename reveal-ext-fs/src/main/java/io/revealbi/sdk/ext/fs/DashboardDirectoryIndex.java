@@ -0,0 +1,264 @@
+package io.revealbi.sdk.ext.fs;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * In-memory index of the dashboard ids stored in each dashboards directory, so the list of ids can be returned
+ * without listing the directory on every request.
+ * Each directory is listed the first time it's requested and then kept up to date using a {@link WatchService},
+ * directories are also listed again periodically in a background thread, as watch events are not reliable in
+ * all file systems (like network file systems). If a watch service is not available, or watching is disabled,
+ * the index relies only on the periodic rescan and the changes notified by the repository.
+ * Only the dashboards directory itself is watched, so files added or removed externally in shard subdirectories (see {@link ShardedDirectoryLayout})
+ * are detected only by the periodic rescan. Shard subdirectories are not watched as there might be up to 65536 of them
+ * in each directory, exceeding the limit of watched directories in most systems. Changes made through the repository
+ * are always included immediately.
+ * Changes notified while a directory is being scanned are applied again to the result of the scan, so they're not
+ * lost if the directory was listed before the change was made.
+ */
+public class DashboardDirectoryIndex implements Closeable {
+	private static Logger log = Logger.getLogger(DashboardDirectoryIndex.class.getSimpleName());
+
+	private static final String EXTENSION = ".rdash";
+	private static final long POLL_TIMEOUT = 1000;
+
+	private final long rescanInterval;
+	private final Map<Path, DirectoryEntry> directories = new ConcurrentHashMap<Path, DirectoryEntry>();
+	private WatchService watchService;
+	private Thread thread;
+	private volatile boolean closed;
+
+	/**
+	 * Creates a new index.
+	 * @param useWatchService If true a {@link WatchService} will be used to get notified of changes in the directories.
+	 * @param rescanInterval The interval, in milliseconds, used to list the directories again.
+	 */
+	public DashboardDirectoryIndex(boolean useWatchService, long rescanInterval) {
+		this.rescanInterval = rescanInterval;
+		if (useWatchService) {
+			try {
+				watchService = FileSystems.getDefault().newWatchService();
+			} catch (IOException | UnsupportedOperationException exc) {
+				log.warning("Watch service not available, directories will be scanned every " + rescanInterval + "ms: " + exc);
+			}
+		}
+	}
+
+	/**
+	 * Returns the ids of the dashboards in the given directory, or null if the directory doesn't exist.
+	 */
+	public String[] getDashboardIds(File dir) {
+		if (!dir.isDirectory()) {
+			return null;
+		}
+		Path path = dir.toPath().toAbsolutePath();
+		DirectoryEntry entry = directories.get(path);
+		if (entry == null) {
+			entry = addDirectory(path);
+		}
+		Set<String> ids = entry.ids;
+		return ids.toArray(new String[ids.size()]);
+	}
+
+	public void dashboardSaved(File dir, String dashboardId) {
+		DirectoryEntry entry = directories.get(dir.toPath().toAbsolutePath());
+		if (entry != null) {
+			entry.add(dashboardId);
+		}
+	}
+
+	public void dashboardDeleted(File dir, String dashboardId) {
+		DirectoryEntry entry = directories.get(dir.toPath().toAbsolutePath());
+		if (entry != null) {
+			entry.remove(dashboardId);
+		}
+	}
+
+	@Override
+	public void close() {
+		closed = true;
+		if (watchService != null) {
+			try {
+				watchService.close();
+			} catch (IOException e) {
+				log.log(Level.FINE, "Failed to close watch service", e);
+			}
+		}
+		directories.clear();
+	}
+
+	private synchronized DirectoryEntry addDirectory(Path path) {
+		DirectoryEntry entry = directories.get(path);
+		if (entry != null) {
+			return entry;
+		}
+		entry = new DirectoryEntry();
+		if (watchService != null) {
+			// shard subdirectories are not registered, see the class documentation
+			try {
+				path.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+			} catch (IOException exc) {
+				log.warning("Failed to watch directory " + path + ", it will be scanned every " + rescanInterval + "ms: " + exc);
+			}
+		}
+		scan(path, entry);
+		directories.put(path, entry);
+		ensureThread();
+		return entry;
+	}
+
+	private void ensureThread() {
+		if (thread != null) {
+			return;
+		}
+		thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				processEvents();
+			}
+		}, "reveal-dashboards-index");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	private void processEvents() {
+		while (!closed) {
+			try {
+				if (watchService != null) {
+					WatchKey key = watchService.poll(POLL_TIMEOUT, TimeUnit.MILLISECONDS);
+					if (key != null) {
+						processKey(key);
+					}
+				} else {
+					Thread.sleep(POLL_TIMEOUT);
+				}
+				rescanStaleDirectories();
+			} catch (InterruptedException | ClosedWatchServiceException exc) {
+				return;
+			} catch (RuntimeException exc) {
+				log.log(Level.WARNING, "Failed to update dashboards index", exc);
+			}
+		}
+	}
+
+	private void processKey(WatchKey key) {
+		Path dir = (Path)key.watchable();
+		DirectoryEntry entry = directories.get(dir);
+		if (entry == null) {
+			key.cancel();
+			return;
+		}
+		for (WatchEvent<?> event : key.pollEvents()) {
+			if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+				scan(dir, entry);
+				continue;
+			}
+			String name = event.context().toString();
+			if (!name.endsWith(EXTENSION)) {
+				continue;
+			}
+			String dashboardId = name.substring(0, name.length() - EXTENSION.length());
+			File file = dir.resolve(name).toFile();
+			if (file.isFile() && file.canRead()) {
+				entry.add(dashboardId);
+			} else {
+				entry.remove(dashboardId);
+			}
+		}
+		if (!key.reset()) {
+			// directory was deleted or is no longer accessible
+			directories.remove(dir);
+		}
+	}
+
+	private void rescanStaleDirectories() {
+		long now = System.currentTimeMillis();
+		List<Path> stale = new ArrayList<Path>();
+		for (Map.Entry<Path, DirectoryEntry> e : directories.entrySet()) {
+			if (now - e.getValue().lastScan >= rescanInterval) {
+				stale.add(e.getKey());
+			}
+		}
+		for (Path path : stale) {
+			DirectoryEntry entry = directories.get(path);
+			if (entry == null) {
+				continue;
+			}
+			if (!path.toFile().isDirectory()) {
+				directories.remove(path);
+				continue;
+			}
+			scan(path, entry);
+		}
+	}
+
+	private static void scan(Path path, DirectoryEntry entry) {
+		Set<String> ids = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+		entry.startScan();
+		try {
+			ShardedDirectoryLayout.listDashboardIds(path.toFile(), ids);
+		} finally {
+			entry.finishScan(ids);
+		}
+	}
+
+	private static class DirectoryEntry {
+		volatile Set<String> ids = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+		volatile long lastScan;
+		// changes made while the directory is being scanned, true for saved and false for deleted dashboards
+		private Map<String, Boolean> scanChanges;
+
+		synchronized void add(String dashboardId) {
+			ids.add(dashboardId);
+			if (scanChanges != null) {
+				scanChanges.put(dashboardId, Boolean.TRUE);
+			}
+		}
+
+		synchronized void remove(String dashboardId) {
+			ids.remove(dashboardId);
+			if (scanChanges != null) {
+				scanChanges.put(dashboardId, Boolean.FALSE);
+			}
+		}
+
+		synchronized void startScan() {
+			scanChanges = new HashMap<String, Boolean>();
+		}
+
+		/**
+		 * Replaces the ids with the result of the scan, applying the changes made since the scan was started.
+		 */
+		synchronized void finishScan(Set<String> scannedIds) {
+			for (Map.Entry<String, Boolean> change : scanChanges.entrySet()) {
+				if (change.getValue()) {
+					scannedIds.add(change.getKey());
+				} else {
+					scannedIds.remove(change.getKey());
+				}
+			}
+			scanChanges = null;
+			ids = scannedIds;
+			lastScan = System.currentTimeMillis();
+		}
+	}
+}
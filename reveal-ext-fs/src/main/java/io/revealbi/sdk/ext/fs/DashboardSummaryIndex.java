@@ -0,0 +1,193 @@
+package io.revealbi.sdk.ext.fs;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.json.bind.Jsonb;
+import javax.json.bind.JsonbBuilder;
+
+/**
+ * Index of dashboard summaries persisted as a JSON file in a dashboards directory, so the list of dashboards
+ * can be returned without opening the ".rdash" files, even after a restart.
+ * The file is expected to have a format like this:
+ *
+ * <pre>{@code
+ * {
+ *   "dashboards": {
+ *     "dashboardId": {
+ *       "lastModified": 1600000000000,
+ *       "size": 12345,
+ *       "summary": { ... }
+ *     }
+ *   }
+ * }}</pre>
+ *
+ * Each entry is valid only while the last modified time and size of the ".rdash" file match the ones stored,
+ * entries for modified files are ignored and replaced the next time the summary is extracted.
+ */
+public class DashboardSummaryIndex {
+	private static Logger log = Logger.getLogger(DashboardSummaryIndex.class.getName());
+
+	public static final String FILE_NAME = ".summaries.json";
+
+	private File indexFile;
+	private Map<String, IndexEntry> entries;
+	private boolean dirty;
+
+	public DashboardSummaryIndex(File dashboardsDir) {
+		this.indexFile = new File(dashboardsDir, FILE_NAME);
+	}
+
+	/**
+	 * Returns the summary stored for the given dashboard, only if the file was not modified since the summary was stored.
+	 */
+	public synchronized Map<String, Object> getSummary(String dashboardId, long lastModified, long size) {
+		ensureEntries();
+		IndexEntry entry = entries.get(dashboardId);
+		if (entry == null) {
+			return null;
+		}
+		if (entry.getLastModified() != lastModified || entry.getSize() != size) {
+			entries.remove(dashboardId);
+			dirty = true;
+			return null;
+		}
+		return entry.getSummary();
+	}
+
+	public synchronized void putSummary(String dashboardId, long lastModified, long size, Map<String, Object> summary) {
+		ensureEntries();
+		IndexEntry entry = new IndexEntry();
+		entry.setLastModified(lastModified);
+		entry.setSize(size);
+		entry.setSummary(summary);
+		entries.put(dashboardId, entry);
+		dirty = true;
+	}
+
+	public synchronized void remove(String dashboardId) {
+		ensureEntries();
+		if (entries.remove(dashboardId) != null) {
+			dirty = true;
+		}
+	}
+
+	/**
+	 * Removes the entries for dashboards not included in the given list, used to discard files deleted externally.
+	 */
+	public synchronized void retain(Collection<String> dashboardIds) {
+		if (entries == null) {
+			return;
+		}
+		Set<String> ids = new HashSet<String>(dashboardIds);
+		if (entries.keySet().retainAll(ids)) {
+			dirty = true;
+		}
+	}
+
+	/**
+	 * Writes the index to disk if it was modified since it was loaded or last written.
+	 */
+	public synchronized void flush() {
+		if (!dirty) {
+			return;
+		}
+		File dir = indexFile.getParentFile();
+		if (!dir.exists()) {
+			return;
+		}
+		IndexData data = new IndexData();
+		data.setDashboards(entries);
+		File tmpFile = new File(dir, FILE_NAME + ".tmp");
+		try {
+			Jsonb jsonb = JsonbBuilder.create();
+			try (OutputStream out = new FileOutputStream(tmpFile)) {
+				jsonb.toJson(data, out);
+			}
+			try {
+				Files.move(tmpFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException exc) {
+				Files.move(tmpFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+			dirty = false;
+		} catch (Exception e) {
+			log.log(Level.WARNING, "Failed to save summary index " + indexFile, e);
+		}
+	}
+
+	private void ensureEntries() {
+		if (entries != null) {
+			return;
+		}
+		entries = new HashMap<String, IndexEntry>();
+		if (!indexFile.exists() || !indexFile.canRead()) {
+			return;
+		}
+		Jsonb jsonb = JsonbBuilder.create();
+		try (InputStream in = new FileInputStream(indexFile)) {
+			IndexData data = jsonb.fromJson(in, IndexData.class);
+			if (data != null && data.getDashboards() != null) {
+				entries.putAll(data.getDashboards());
+			}
+		} catch (Exception e) {
+			log.log(Level.WARNING, "Failed to load summary index " + indexFile + ", it will be created again", e);
+			dirty = true;
+		}
+	}
+
+	public static class IndexData {
+		private Map<String, IndexEntry> dashboards;
+
+		public Map<String, IndexEntry> getDashboards() {
+			return dashboards;
+		}
+
+		public void setDashboards(Map<String, IndexEntry> dashboards) {
+			this.dashboards = dashboards;
+		}
+	}
+
+	public static class IndexEntry {
+		private long lastModified;
+		private long size;
+		private Map<String, Object> summary;
+
+		public long getLastModified() {
+			return lastModified;
+		}
+
+		public void setLastModified(long lastModified) {
+			this.lastModified = lastModified;
+		}
+
+		public long getSize() {
+			return size;
+		}
+
+		public void setSize(long size) {
+			this.size = size;
+		}
+
+		public Map<String, Object> getSummary() {
+			return summary;
+		}
+
+		public void setSummary(Map<String, Object> summary) {
+			this.summary = summary;
+		}
+	}
+}
@@ -5,14 +5,30 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 import com.infragistics.controls.IOUtils;
 import com.infragistics.reveal.sdk.api.IRVUserContext;
 
+import io.revealbi.sdk.ext.api.ChangeEvent;
+import io.revealbi.sdk.ext.api.DashboardInfo;
+import io.revealbi.sdk.ext.api.DashboardPatch;
 import io.revealbi.sdk.ext.base.BaseDashboardRepository;
+import io.revealbi.sdk.ext.base.ByteBufferInputStream;
 
 /**
  * Dashboards repository implementation that loads and saves dashboards as ".rdash" files in the file system.
@@ -25,8 +41,20 @@ import io.revealbi.sdk.ext.base.BaseDashboardRepository;
 public class FileSystemDashboardRepository extends BaseDashboardRepository {
 	private static Logger log = Logger.getLogger(FileSystemDashboardRepository.class.getSimpleName());
 	
+	private static final String BLOBS_DIR = ".blobs";
+	private static final int WRITE_LOCK_STRIPES = 64;
+	
 	private String rootDir;
 	private boolean personal;
+	private boolean summaryIndexEnabled;
+	private boolean shardedLayout;
+	private volatile DashboardBlobStore blobStore;
+	private volatile SampleDashboardsOverlay sampleOverlay;
+	private Map<String, DashboardSummaryIndex> summaryIndexes = new HashMap<String, DashboardSummaryIndex>();
+	private volatile DashboardDirectoryIndex directoryIndex;
+	private volatile MappedDashboardCache mappedCache;
+	private volatile GroupCommitSync sync;
+	private final Object[] writeLocks = new Object[WRITE_LOCK_STRIPES];
 	
 	/**
 	 * Creates a new instance of the dashboards repository using the specified root directory. If personal is set to 
@@ -37,77 +65,566 @@ public class FileSystemDashboardRepository extends BaseDashboardRepository {
 	public FileSystemDashboardRepository(String rootDir, boolean personal) {
 		this.rootDir = rootDir;
 		this.personal = personal;
+		for (int i = 0; i < writeLocks.length; i++) {
+			writeLocks[i] = new Object();
+		}
 	}
 	
 	@Override
 	public InputStream getDashboard(IRVUserContext userContext, String dashboardId) throws IOException {
-		String path = getDashboardPath(userContext, dashboardId);
-		File file = new File(path);
-		if (!file.exists() || !file.canRead() || !file.isFile()) {
-			path = getDashboardPath((String)null, dashboardId);
+		File file = getDashboardFile(userContext, dashboardId);
+		if (file == null) {
+			SampleDashboardsOverlay overlay = getSampleOverlay(userContext, dashboardId);
+			return overlay == null ? null : overlay.getDashboard(dashboardId);
 		}
-		file = new File(path);
-		if (!file.exists() || !file.canRead() || !file.isFile()) {
-			return null;
+		MappedDashboardCache mapped = mappedCache;
+		ByteBuffer buffer = mapped == null ? null : mapped.getBuffer(file);
+		if (buffer != null) {
+			return new ByteBufferInputStream(buffer);
 		}
-		return new FileInputStream(path);
+		return new FileInputStream(file);
 	}	
+	
+	/**
+	 * Returns the content of the dashboard from a memory-mapped file if memory mapping is enabled 
+	 * (see {@link #enableMemoryMapping(int, long)}), or read into a heap buffer if not.
+	 */
+	@Override
+	public ByteBuffer getDashboardBuffer(IRVUserContext userContext, String dashboardId) throws IOException {
+		File file = getDashboardFile(userContext, dashboardId);
+		MappedDashboardCache mapped = mappedCache;
+		ByteBuffer buffer = (file == null || mapped == null) ? null : mapped.getBuffer(file);
+		return buffer != null ? buffer : super.getDashboardBuffer(userContext, dashboardId);
+	}
+	
+	@Override
+	public String getDashboardVersion(IRVUserContext userContext, String dashboardId) throws IOException {
+		File file = getDashboardFile(userContext, dashboardId);
+		if (file == null) {
+			SampleDashboardsOverlay overlay = getSampleOverlay(userContext, dashboardId);
+			return overlay == null ? null : overlay.getDashboardVersion(dashboardId);
+		}
+		DashboardBlobStore.Link link = getBlobLink(file);
+		if (link != null) {
+			// the attributes of the file are shared with all dashboards linked to the same blob
+			return link.getHash().substring(0, 16) + "-" + link.getSaveTime();
+		}
+		BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+		return attributes.lastModifiedTime().to(TimeUnit.MICROSECONDS) + "-" + attributes.size();
+	}
+	
+	@Override
+	public Long getDashboardLastModified(IRVUserContext userContext, String dashboardId) throws IOException {
+		File file = getDashboardFile(userContext, dashboardId);
+		if (file == null) {
+			return null;
+		}
+		DashboardBlobStore.Link link = getBlobLink(file);
+		return link != null ? link.getSaveTime() : file.lastModified();
+	}
+	
+	/**
+	 * Returns the link to the blob with the content of the given dashboard file, null if deduplication is not enabled or
+	 * the file is not a link to a blob.
+	 */
+	private DashboardBlobStore.Link getBlobLink(File file) throws IOException {
+		DashboardBlobStore blobs = blobStore;
+		return blobs == null ? null : blobs.getLink(file);
+	}
+	
+	@Override
+	protected String getDashboardsScope(String userId) {
+		return personal ? userId : null;
+	}
+	
+	@Override
+	public DashboardInfo[] getUserDashboards(IRVUserContext userContext) throws IOException {
+		try {
+			return super.getUserDashboards(userContext);
+		} finally {
+			flushSummaryIndexes();
+		}
+	}
+	
+	@Override
+	protected DashboardInfo createDashboardInfo(IRVUserContext userContext, String dashboardId) throws IOException {
+		File file = getDashboardFile(userContext, dashboardId);
+		if (file == null) {
+			return createSampleDashboardInfo(userContext, dashboardId);
+		}
+		BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+		DashboardBlobStore.Link link = getBlobLink(file);
+		long lastModified = link != null ? link.getSaveTime() : attributes.lastModifiedTime().toMillis();
+		DashboardSummaryIndex index = summaryIndexEnabled ? getSummaryIndex(ShardedDirectoryLayout.getDashboardsDir(file, dashboardId)) : null;
+		DashboardInfo info = null;
+		if (index != null) {
+			Map<String, Object> summary = index.getSummary(dashboardId, lastModified, attributes.size());
+			if (summary != null) {
+				info = new DashboardInfo(dashboardId, summary);
+			}
+		}
+		if (info == null) {
+			info = super.createDashboardInfo(userContext, dashboardId);
+			if (info == null) {
+				return null;
+			}
+			if (index != null) {
+				index.putSummary(dashboardId, lastModified, attributes.size(), info.getInfo());
+			}
+		}
+		info.setLastModified(lastModified);
+		return info;
+	}
+	
+	private DashboardInfo createSampleDashboardInfo(IRVUserContext userContext, String dashboardId) throws IOException {
+		SampleDashboardsOverlay overlay = getSampleOverlay(userContext, dashboardId);
+		if (overlay == null) {
+			return null;
+		}
+		// the summary is extracted once and shared by all users
+		Map<String, Object> summary = overlay.getSummary(dashboardId);
+		if (summary == null) {
+			DashboardInfo info = super.createDashboardInfo(userContext, dashboardId);
+			if (info == null) {
+				return null;
+			}
+			summary = info.getInfo();
+			overlay.setSummary(dashboardId, summary);
+		}
+		return new DashboardInfo(dashboardId, summary);
+	}
+	
+	/**
+	 * Returns the sample dashboards overlay if the given dashboard is a sample dashboard visible for the user.
+	 */
+	private SampleDashboardsOverlay getSampleOverlay(IRVUserContext userContext, String dashboardId) throws IOException {
+		SampleDashboardsOverlay overlay = sampleOverlay;
+		if (overlay == null || !overlay.isVisible(getUserDir(userContext.getUserId()), dashboardId)) {
+			return null;
+		}
+		return overlay;
+	}
+	
+	/**
+	 * Sets the list of sample dashboards served to all users directly from classpath resources, as an alternative to
+	 * {@link #installSampleDashboards(IRVUserContext, Class, String[])} that doesn't copy the dashboards to each user directory.
+	 * The content of each dashboard is kept in memory after the first time it's loaded, and a file for the dashboard is 
+	 * created in the user directory only when the user saves it. If the user deletes a sample dashboard, it's hidden 
+	 * for that user. See {@link SampleDashboardsOverlay} for more information.
+	 * @param clazz The class used to load the resources.
+	 * @param resources The path of the resources, the name of the file (without extension) is used as the id of the dashboard. Use null to remove the sample dashboards.
+	 */
+	public void setSampleDashboards(Class<?> clazz, String[] resources) {
+		sampleOverlay = resources == null ? null : new SampleDashboardsOverlay(clazz, resources);
+	}
+	
+	/**
+	 * Enables or disables the persistent summary index, when enabled a "{@value DashboardSummaryIndex#FILE_NAME}" file is created in
+	 * each dashboards directory with the summary of all dashboards, so the list of dashboards can be returned without 
+	 * opening the ".rdash" files, even after a restart. Disabled by default.
+	 * See {@link DashboardSummaryIndex} for more information.
+	 */
+	public void setSummaryIndexEnabled(boolean summaryIndexEnabled) {
+		this.summaryIndexEnabled = summaryIndexEnabled;
+	}
+	
+	/**
+	 * Enables an in-memory index of the dashboard ids in each directory, so directories are not listed every time
+	 * the list of dashboards is requested. See {@link DashboardDirectoryIndex} for more information.
+	 * @param useWatchService If true changes in the directories are detected using a watch service, set it to false for file systems 
+	 * where watch events are not reliable, like network file systems. Shard subdirectories of the sharded layout are not watched,
+	 * so dashboards added or removed there without using the repository are detected only by the rescan.
+	 * @param rescanInterval The interval, in milliseconds, used to list the directories again, to detect changes not notified by the watch service.
+	 */
+	public synchronized void enableDirectoryIndex(boolean useWatchService, long rescanInterval) {
+		disableDirectoryIndex();
+		directoryIndex = new DashboardDirectoryIndex(useWatchService, rescanInterval);
+	}
+	
+	/**
+	 * Enables or disables the sharded directory layout, when enabled dashboards are saved in two levels of subdirectories
+	 * named after the hash of the dashboard id (see {@link ShardedDirectoryLayout}) instead of directly in the user directory,
+	 * recommended for repositories with a very large number of dashboards per directory. Disabled by default.
+	 * Dashboards are found in both layouts, and each dashboard is moved to the current layout the next time it's saved, 
+	 * use {@link #migrateLayout()} to move all existing dashboards at once.
+	 */
+	public void setShardedLayout(boolean shardedLayout) {
+		this.shardedLayout = shardedLayout;
+	}
+	
+	/**
+	 * Moves all dashboards stored using the layout not currently selected (see {@link #setShardedLayout(boolean)}) to the
+	 * current one, for the shared directory and, if dashboards are personal, for all user directories.
+	 * @return The number of dashboards moved.
+	 */
+	public int migrateLayout() throws IOException {
+		File root = new File(rootDir);
+		int count = migrateLayout(root);
+		if (personal) {
+			File[] userDirs = root.listFiles();
+			if (userDirs != null) {
+				for (File userDir : userDirs) {
+					if (userDir.isDirectory() && !userDir.getName().startsWith(".")) {
+						count += migrateLayout(userDir);
+					}
+				}
+			}
+		}
+		return count;
+	}
+	
+	private int migrateLayout(File dir) throws IOException {
+		List<String> ids = new ArrayList<String>();
+		ShardedDirectoryLayout.listDashboardIds(dir, ids);
+		int count = 0;
+		for (String dashboardId : ids) {
+			File source = ShardedDirectoryLayout.getDashboardFile(dir, dashboardId, !shardedLayout);
+			if (!source.isFile()) {
+				continue;
+			}
+			File target = ShardedDirectoryLayout.getDashboardFile(dir, dashboardId, shardedLayout);
+			if (target.exists()) {
+				// already saved in the current layout, this copy is outdated
+				source.delete();
+				continue;
+			}
+			target.getParentFile().mkdirs();
+			Files.move(source.toPath(), target.toPath());
+			if (!shardedLayout) {
+				// remove shard directories once empty, delete fails for directories that still have files
+				source.getParentFile().delete();
+				source.getParentFile().getParentFile().delete();
+			}
+			count++;
+		}
+		if (count > 0) {
+			log.info("Moved " + count + " dashboards in " + dir + " to the " + (shardedLayout ? "sharded" : "flat") + " layout");
+		}
+		return count;
+	}
+	
+	/**
+	 * Enables or disables deduplication of dashboards, when enabled the content of each dashboard is stored only once 
+	 * in the "{@value #BLOBS_DIR}" directory under the root directory, and dashboard files are created as hard links to it.
+	 * Recommended when dashboards are personal and most users have the same dashboards, like sample dashboards.
+	 * It requires a file system supporting hard links, if not supported dashboards are stored as regular files.
+	 * See {@link DashboardBlobStore} for more information. Disabled by default.
+	 */
+	public void setDeduplicationEnabled(boolean deduplicationEnabled) {
+		if (!deduplicationEnabled) {
+			blobStore = null;
+			return;
+		}
+		DashboardBlobStore blobs = new DashboardBlobStore(new File(rootDir, BLOBS_DIR));
+		blobs.setSync(sync);
+		if (!blobs.isSupported()) {
+			log.warning("Hard links not supported, dashboards will be stored without deduplication");
+		}
+		blobStore = blobs;
+	}
+	
+	/**
+	 * Enables or disables durable writes, when enabled each save returns only after the new content and the directory entry 
+	 * pointing to it are forced to the storage device, so saved dashboards survive a system crash. Syncs requested by concurrent 
+	 * saves are batched together, see {@link GroupCommitSync}. Disabled by default, as it makes saves much slower in most 
+	 * file systems. Saves are atomic in both modes: readers see either the previous or the new content of a dashboard.
+	 */
+	public void setDurableWrites(boolean durableWrites) {
+		GroupCommitSync s = durableWrites ? new GroupCommitSync() : null;
+		sync = s;
+		DashboardBlobStore blobs = blobStore;
+		if (blobs != null) {
+			blobs.setSync(s);
+		}
+	}
+	
+	/**
+	 * Deletes the stored contents no longer used by any dashboard, for instance after dashboard files were deleted externally.
+	 * Contents are also deleted when the last dashboard using them is deleted using this repository, so there's usually no
+	 * need to call this method.
+	 * @return The number of contents deleted, zero if deduplication is not enabled.
+	 */
+	public int collectGarbage() {
+		DashboardBlobStore blobs = blobStore;
+		return blobs == null ? 0 : blobs.collectGarbage();
+	}
+	
+	/**
+	 * Enables serving dashboards from memory-mapped files, keeping the most recently used files mapped. 
+	 * See {@link MappedDashboardCache} for more information.
+	 * It requires a POSIX file system, in others (like Windows) mapped files can't be replaced or deleted until the mapping 
+	 * is released by the garbage collector, so memory mapping is not enabled and dashboards are read as usual.
+	 * @param maxMappings The maximum number of files kept mapped.
+	 * @param minFileSize The minimum size of the files to map, smaller files are read as usual.
+	 */
+	public void enableMemoryMapping(int maxMappings, long minFileSize) {
+		if (!MappedDashboardCache.isSupported()) {
+			log.warning("Memory mapping not supported in this file system, dashboards will be read without mapping them");
+			return;
+		}
+		mappedCache = new MappedDashboardCache(maxMappings, minFileSize);
+	}
+	
+	public void disableMemoryMapping() {
+		mappedCache = null;
+	}
+	
+	public synchronized void disableDirectoryIndex() {
+		if (directoryIndex != null) {
+			directoryIndex.close();
+			directoryIndex = null;
+		}
+	}
+	
+	private synchronized DashboardSummaryIndex getSummaryIndex(File dir) {
+		String key = dir.getAbsolutePath();
+		DashboardSummaryIndex index = summaryIndexes.get(key);
+		if (index == null) {
+			index = new DashboardSummaryIndex(dir);
+			summaryIndexes.put(key, index);
+		}
+		return index;
+	}
+	
+	private void flushSummaryIndexes() {
+		if (!summaryIndexEnabled) {
+			return;
+		}
+		List<DashboardSummaryIndex> indexes;
+		synchronized (this) {
+			indexes = new ArrayList<DashboardSummaryIndex>(summaryIndexes.values());
+		}
+		for (DashboardSummaryIndex index : indexes) {
+			index.flush();
+		}
+	}
+	
+	private void removeFromSummaryIndex(File dir, String dashboardId, boolean flush) {
+		if (!summaryIndexEnabled) {
+			return;
+		}
+		DashboardSummaryIndex index = getSummaryIndex(dir);
+		index.remove(dashboardId);
+		if (flush) {
+			index.flush();
+		}
+	}
 
+	/**
+	 * Saves the dashboard writing it to a temporary file first, that then replaces the existing file atomically, so readers 
+	 * never see partially written dashboards. Concurrent saves and deletes of the same dashboard are serialized, while reads 
+	 * are never blocked.
+	 */
 	@Override
 	public void saveDashboard(IRVUserContext userContext, String dashboardId, InputStream dashboardStream) throws IOException {
-		String path = getDashboardPath(userContext, dashboardId);
-		File file = new File(path);
-		if (!file.getParentFile().exists()) {
-			file.getParentFile().mkdirs();
+		File userDir = getUserDir(userContext.getUserId());
+		File file = ShardedDirectoryLayout.getDashboardFile(userDir, dashboardId, shardedLayout);
+		synchronized (getWriteLock(userDir, dashboardId)) {
+			MappedDashboardCache mapped = mappedCache;
+			if (mapped != null) {
+				mapped.release(file);
+			}
+			DashboardBlobStore blobs = blobStore;
+			if (blobs != null && blobs.isSupported()) {
+				blobs.save(dashboardStream, file);
+			} else {
+				writeFile(dashboardStream, file);
+			}
+			// remove the copy in the previous layout, if any
+			deleteFile(ShardedDirectoryLayout.getDashboardFile(userDir, dashboardId, !shardedLayout));
+			removeFromSummaryIndex(userDir, dashboardId, true);
+			DashboardDirectoryIndex index = directoryIndex;
+			if (index != null) {
+				index.dashboardSaved(userDir, dashboardId);
+			}
+			SampleDashboardsOverlay overlay = sampleOverlay;
+			if (overlay != null) {
+				overlay.unhide(userDir, dashboardId);
+			}
 		}
-		try (FileOutputStream out = new FileOutputStream(file)) {
-			IOUtils.copy(dashboardStream, out);
+		dashboardChanged(userContext.getUserId(), dashboardId, ChangeEvent.Action.SAVED);
+	}
+	
+	/**
+	 * Patches the dashboard holding the same lock used to save it, so no other save or patch of the dashboard is lost
+	 * and the version is checked against the one being patched.
+	 */
+	@Override
+	public boolean patchDashboard(IRVUserContext userContext, String dashboardId, DashboardPatch patch, String expectedVersion) throws IOException {
+		synchronized (getWriteLock(getUserDir(userContext.getUserId()), dashboardId)) {
+			return super.patchDashboard(userContext, dashboardId, patch, expectedVersion);
 		}
 	}
 	
+	private void writeFile(InputStream dashboardStream, File file) throws IOException {
+		File tmpFile = DashboardBlobStore.getTempFile(file);
+		GroupCommitSync s = sync;
+		try {
+			try (FileOutputStream out = new FileOutputStream(tmpFile)) {
+				IOUtils.copy(dashboardStream, out);
+			}
+			if (s != null) {
+				s.sync(tmpFile.toPath());
+			}
+			DashboardBlobStore blobs = blobStore;
+			if (blobs != null) {
+				// the existing file might be a link to a blob shared with other dashboards
+				blobs.replace(tmpFile, file);
+			} else {
+				Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+				if (s != null) {
+					s.sync(file.getParentFile().toPath());
+				}
+			}
+		} finally {
+			Files.deleteIfExists(tmpFile.toPath());
+		}
+	}
+	
+	private Object getWriteLock(File userDir, String dashboardId) {
+		int hash = userDir.getPath().hashCode() * 31 + dashboardId.hashCode();
+		return writeLocks[(hash & 0x7fffffff) % writeLocks.length];
+	}
+	
 	@Override
 	public void deleteDashboard(String userId, String dashboardId) throws IOException {
-		String path = getDashboardPath(userId, dashboardId);
-		File file = new File(path);
-		if (file.exists()) {
+		deleteDashboard(userId, dashboardId, true);
+	}
+	
+	/**
+	 * Deletes all the given dashboards, writing the summary index only once at the end.
+	 */
+	@Override
+	public void deleteDashboards(IRVUserContext userContext, List<String> dashboardIds) throws IOException {
+		try {
+			for (String dashboardId : dashboardIds) {
+				deleteDashboard(userContext.getUserId(), dashboardId, false);
+			}
+		} finally {
+			flushSummaryIndexes();
+		}
+	}
+	
+	/**
+	 * Checks which of the given dashboards exist using the list of dashboards in the user directory, instead of looking for each file.
+	 */
+	@Override
+	public Map<String, Boolean> exists(IRVUserContext userContext, List<String> dashboardIds) throws IOException {
+		String[] ids = getUserDashboardIds(userContext.getUserId());
+		Set<String> existing = ids == null ? new HashSet<String>() : new HashSet<String>(Arrays.asList(ids));
+		Map<String, Boolean> result = new LinkedHashMap<String, Boolean>();
+		for (String dashboardId : dashboardIds) {
+			// personal dashboards might also be found in the shared directory
+			boolean found = existing.contains(dashboardId) || (personal && getDashboardFile(userContext, dashboardId) != null);
+			result.put(dashboardId, found);
+		}
+		return result;
+	}
+	
+	@Override
+	public DashboardInfo[] getDashboardInfos(IRVUserContext userContext, List<String> dashboardIds) throws IOException {
+		try {
+			return super.getDashboardInfos(userContext, dashboardIds);
+		} finally {
+			flushSummaryIndexes();
+		}
+	}
+	
+	private void deleteDashboard(String userId, String dashboardId, boolean flushSummaryIndex) throws IOException {
+		File userDir = getUserDir(userId);
+		synchronized (getWriteLock(userDir, dashboardId)) {
+			for (boolean sharded : new boolean[] { shardedLayout, !shardedLayout }) {
+				deleteFile(ShardedDirectoryLayout.getDashboardFile(userDir, dashboardId, sharded));
+			}
+			removeFromSummaryIndex(userDir, dashboardId, flushSummaryIndex);
+			DashboardDirectoryIndex index = directoryIndex;
+			if (index != null) {
+				index.dashboardDeleted(userDir, dashboardId);
+			}
+			SampleDashboardsOverlay overlay = sampleOverlay;
+			if (overlay != null) {
+				overlay.hide(userDir, dashboardId);
+			}
+		}
+		dashboardChanged(userId, dashboardId, ChangeEvent.Action.DELETED);
+	}
+	
+	private void deleteFile(File file) throws IOException {
+		MappedDashboardCache mapped = mappedCache;
+		if (mapped != null) {
+			mapped.release(file);
+		}
+		DashboardBlobStore blobs = blobStore;
+		if (blobs != null) {
+			blobs.delete(file);
+		} else if (file.exists()) {
 			file.delete();
 		}
 	}
 	
-	private String getDashboardPath(IRVUserContext userContext, String dashboardId) {
-		String userId = userContext.getUserId();
-		return getDashboardPath(userId, dashboardId);
+	@Override
+	public File getDashboardFile(IRVUserContext userContext, String dashboardId) {
+		File file = findDashboardFile(getUserDir(userContext.getUserId()), dashboardId);
+		if (file == null) {
+			file = findDashboardFile(getUserDir(null), dashboardId);
+		}
+		return file;
 	}
 	
-	private String getDashboardPath(String userId, String dashboardId) {
-		File userDir = (userId == null || !personal) ? new File(rootDir) : new File(rootDir, userId);
-		if (dashboardId == null) {
-			return userDir.getAbsolutePath();
+	private File findDashboardFile(File dir, String dashboardId) {
+		for (boolean sharded : new boolean[] { shardedLayout, !shardedLayout }) {
+			File file = ShardedDirectoryLayout.getDashboardFile(dir, dashboardId, sharded);
+			if (file.exists() && file.canRead() && file.isFile()) {
+				return file;
+			}
 		}
-		return new File(userDir, dashboardId + ".rdash").getAbsolutePath();
-
+		return null;
+	}
+	
+	private File getUserDir(String userId) {
+		File userDir = (userId == null || !personal) ? new File(rootDir) : new File(rootDir, userId);
+		return userDir.getAbsoluteFile();
 	}
 
 	@Override
 	protected String[] getUserDashboardIds(String userId) throws IOException {
-		String path = getDashboardPath(userId, null);
-		File userDir = new File(path);
+		File userDir = getUserDir(userId);
+		SampleDashboardsOverlay overlay = sampleOverlay;
 		if (!userDir.exists() || !userDir.isDirectory()) {
-			return null;
-		}
-		List<String> ids = new ArrayList<String>();
-		for (File f : userDir.listFiles()) {
-			if (f.isDirectory() || !f.canRead() || !f.getName().endsWith(".rdash")) {
-				continue;
+			if (overlay == null) {
+				return null;
 			}
-			ids.add(getDashboardId(f.getName()));
+			Set<String> ids = new LinkedHashSet<String>();
+			overlay.listDashboardIds(userDir, ids);
+			return ids.toArray(new String[ids.size()]);
 		}
+		String[] ids = listDashboardIds(userDir);
+		if (ids != null && summaryIndexEnabled) {
+			getSummaryIndex(userDir).retain(Arrays.asList(ids));
+		}
+		if (ids != null && overlay != null) {
+			// sample dashboards not saved by the user are served from the overlay
+			Set<String> merged = new LinkedHashSet<String>(Arrays.asList(ids));
+			overlay.listDashboardIds(userDir, merged);
+			ids = merged.toArray(new String[merged.size()]);
+		}
+		return ids;
+	}
+	
+	private String[] listDashboardIds(File userDir) {
+		DashboardDirectoryIndex index = directoryIndex;
+		if (index != null) {
+			return index.getDashboardIds(userDir);
+		}
+		// a set, as the same dashboard might be in both layouts if a migration was interrupted
+		Set<String> ids = new LinkedHashSet<String>();
+		ShardedDirectoryLayout.listDashboardIds(userDir, ids);
 		return ids.toArray(new String[ids.size()]);
 	}
 	
 	public void installSampleDashboards(IRVUserContext userContext, Class<?> clazz, String[] resources) {
-		String userPath = getDashboardPath(userContext, null);
-		File userDir = new File(userPath);
+		File userDir = getUserDir(userContext.getUserId());
+		String userPath = userDir.getPath();
 		if (userDir.exists()) {
 			log.fine("Skipping installation of sample dashboards, folder already exists");
 			return;
@@ -145,11 +662,4 @@ public class FileSystemDashboardRepository extends BaseDashboardRepository {
 			return name;
 		}
 	}
-	
-	private static String getDashboardId(String fileName) {
-		if (fileName.endsWith(".rdash")) {
-			return fileName.substring(0, fileName.length() - ".rdash".length());
-		}
-		return fileName;
-	}
 }
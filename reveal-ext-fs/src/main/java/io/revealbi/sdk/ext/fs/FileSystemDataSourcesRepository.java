@@ -7,8 +7,10 @@ import java.util.Map;
 
 import com.infragistics.reveal.sdk.api.IRVUserContext;
 
+import io.revealbi.sdk.ext.api.ChangeEvent;
 import io.revealbi.sdk.ext.api.DataSourcesInfo;
 import io.revealbi.sdk.ext.api.IDataSourcesRepository;
+import io.revealbi.sdk.ext.base.ChangeLog;
 
 /**
  * Data sources repository implementation that loads data sources from a JSON document.
@@ -34,6 +36,7 @@ import io.revealbi.sdk.ext.api.IDataSourcesRepository;
  * When the personal flag is true, there will be a separate file for each user, under datasources folder named {userId}.json,
  * like datasources/guest.json.
  * If personal is false, all datasources will be shared among users and stored in a single file: datasources.json.
+ * Changes made through this repository are recorded in the {@link ChangeLog}.
  */
 public class FileSystemDataSourcesRepository implements IDataSourcesRepository {
 	private static final String SINGLE_USER_KEY = "datasources";
@@ -56,11 +59,20 @@ public class FileSystemDataSourcesRepository implements IDataSourcesRepository {
 	@Override
 	public void saveDataSource(String userId, String dataSourceId, Map<String, Object> json) throws IOException {
 		getRepository(userId).saveDataSource(dataSourceId, json);
+		ChangeLog.changed(getScope(userId), ChangeEvent.ResourceType.DATA_SOURCE, ChangeEvent.Action.SAVED, dataSourceId);
 	}
 	
 	@Override
 	public void deleteDataSource(String userId, String dataSourceId) throws IOException {
 		getRepository(userId).deleteDataSource(dataSourceId);
+		ChangeLog.changed(getScope(userId), ChangeEvent.ResourceType.DATA_SOURCE, ChangeEvent.Action.DELETED, dataSourceId);
+	}
+	
+	/**
+	 * Returns the scope used to record changes in the {@link ChangeLog}, the user id if data sources are personal and null if they're shared.
+	 */
+	private String getScope(String userId) {
+		return personal ? userId : null;
 	}
 	
 	private synchronized SingleUserDataSourcesRepository getRepository(String userId) {
@@ -0,0 +1,113 @@
+package io.revealbi.sdk.ext.fs;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Forces files and directories to the storage device batching requests from concurrent threads (group commit), used by
+ * {@link FileSystemDashboardRepository} when durable writes are enabled.
+ * The first thread requesting a sync performs it for all requests pending at that time, while requests received in the
+ * meantime wait and are synced together in the next batch, so concurrent saves to the same directory share a single
+ * directory sync, and threads don't compete for the device with their own syncs.
+ */
+public class GroupCommitSync {
+	private final List<Request> pending = new ArrayList<Request>();
+	private boolean syncing;
+
+	/**
+	 * Forces the content of the given file, or the entries of the given directory, to the storage device, returning once
+	 * it's done. Directory syncs are ignored in platforms not supporting them.
+	 * Each path in a batch is synced even if syncing other paths failed, and only the requests for a failed path get its error.
+	 */
+	public void sync(Path path) throws IOException {
+		Request request = new Request(path);
+		List<Request> batch;
+		synchronized (this) {
+			pending.add(request);
+			while (syncing && !request.done) {
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					// the caller might delete the file once we return, so it must not be synced with the next batch
+					pending.remove(request);
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException("Interrupted while waiting for sync of " + path);
+				}
+			}
+			if (request.done) {
+				request.checkError();
+				return;
+			}
+			syncing = true;
+			batch = new ArrayList<Request>(pending);
+			pending.clear();
+		}
+		Map<Path, IOException> errors = new HashMap<Path, IOException>();
+		try {
+			Set<Path> paths = new LinkedHashSet<Path>();
+			for (Request r : batch) {
+				paths.add(r.path);
+			}
+			for (Path p : paths) {
+				try {
+					force(p);
+				} catch (IOException exc) {
+					errors.put(p, exc);
+				}
+			}
+		} finally {
+			synchronized (this) {
+				for (Request r : batch) {
+					r.error = errors.get(r.path);
+					r.done = true;
+				}
+				syncing = false;
+				notifyAll();
+			}
+		}
+		request.checkError();
+	}
+
+	/**
+	 * Forces the given file or directory to the storage device, called for each distinct path in a batch.
+	 */
+	protected void force(Path path) throws IOException {
+		if (Files.isDirectory(path)) {
+			try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+				channel.force(true);
+			} catch (IOException exc) {
+				// directories can't be opened or synced in some platforms, like Windows
+			}
+			return;
+		}
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+			channel.force(true);
+		}
+	}
+
+	private static class Request {
+		final Path path;
+		boolean done;
+		IOException error;
+
+		Request(Path path) {
+			this.path = path;
+		}
+
+		void checkError() throws IOException {
+			if (error != null) {
+				throw new IOException("Failed to sync " + path, error);
+			}
+		}
+	}
+}
@@ -0,0 +1,805 @@
+package io.revealbi.sdk.ext.fs;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+import com.infragistics.controls.IOUtils;
+import com.infragistics.reveal.sdk.api.IRVUserContext;
+
+import io.revealbi.sdk.ext.api.ChangeEvent;
+import io.revealbi.sdk.ext.api.DashboardInfo;
+import io.revealbi.sdk.ext.api.DashboardPatch;
+import io.revealbi.sdk.ext.base.BaseDashboardRepository;
+
+/**
+ * Dashboard repository storing all dashboards in a few large append-only segment files, instead of one file per dashboard.
+ * Saving a dashboard appends a record with its content to the active segment, and deleting it appends a "tombstone" record,
+ * so all writes are sequential. An in-memory index keeps the location (segment, offset and length) of the last version of
+ * each dashboard, so reading a dashboard takes a single positioned read.
+ * The index is saved to a checkpoint file periodically and when the repository is closed, when opened the checkpoint is
+ * loaded and only the records written after it are read from the segments. If there's no checkpoint all segments are read.
+ * Space used by overwritten and deleted dashboards is reclaimed by {@link #compact()}, that copies the live records of
+ * segments with too much garbage to the active segment and deletes them, it can be run periodically in a background thread
+ * with {@link #startCompaction(long)}.
+ * Segment channels are shared by all threads, and a {@link FileChannel} is closed when a thread using it is interrupted,
+ * so segments open their channel again when closed that way: the interrupted thread fails with {@link ClosedByInterruptException}
+ * and other threads using the segment retry their read or write.
+ */
+public class LogStructuredDashboardRepository extends BaseDashboardRepository implements Closeable {
+	private static Logger log = Logger.getLogger(LogStructuredDashboardRepository.class.getSimpleName());
+
+	public static final long DEFAULT_MAX_SEGMENT_SIZE = 64 * 1024 * 1024;
+	public static final double DEFAULT_COMPACTION_THRESHOLD = 0.5;
+	public static final int DEFAULT_CHECKPOINT_INTERVAL = 1000;
+
+	private static final String SEGMENT_EXTENSION = ".seg";
+	private static final String CHECKPOINT_FILE_NAME = "index.checkpoint";
+	private static final int RECORD_MAGIC = 0x52444c47;
+	private static final int CHECKPOINT_MAGIC = 0x52444349;
+	private static final int CHECKPOINT_VERSION = 1;
+	private static final byte TYPE_PUT = 1;
+	private static final byte TYPE_DELETE = 2;
+	// magic, type, timestamp and key length before the key, data length after it and the CRC after the data
+	private static final int HEADER_SIZE = 4 + 1 + 8 + 4;
+	private static final int RECORD_OVERHEAD = HEADER_SIZE + 4 + 4;
+	private static final String SHARED_SCOPE = "";
+	private static final int MAX_READ_ATTEMPTS = 3;
+
+	private final File dir;
+	private final boolean personal;
+	private final Map<String, Map<String, Location>> index = new ConcurrentHashMap<String, Map<String, Location>>();
+	private final ConcurrentSkipListMap<Integer, Segment> segments = new ConcurrentSkipListMap<Integer, Segment>();
+	private final Object writeLock = new Object();
+	private Segment activeSegment;
+	private int writesSinceCheckpoint;
+	private volatile long maxSegmentSize = DEFAULT_MAX_SEGMENT_SIZE;
+	private volatile double compactionThreshold = DEFAULT_COMPACTION_THRESHOLD;
+	private volatile int checkpointInterval = DEFAULT_CHECKPOINT_INTERVAL;
+	private volatile boolean syncOnWrite;
+	private ScheduledExecutorService compactionExecutor;
+	private volatile boolean closed;
+
+	/**
+	 * Creates a new repository storing segments in the given directory, loading the existing ones.
+	 * @param dir The directory used to store segment files and the index checkpoint.
+	 * @param personal If true each user has a separated list of dashboards, if false a single list is shared by all users.
+	 */
+	public LogStructuredDashboardRepository(String dir, boolean personal) throws IOException {
+		this.dir = new File(dir);
+		this.personal = personal;
+		this.dir.mkdirs();
+		open();
+	}
+
+	@Override
+	public InputStream getDashboard(IRVUserContext userContext, String dashboardId) throws IOException {
+		byte[] content = read(getScope(userContext.getUserId()), dashboardId);
+		return content == null ? null : new ByteArrayInputStream(content);
+	}
+
+	/**
+	 * Returns the version of the dashboard, created from the time it was saved and the checksum of its content, so it
+	 * doesn't change when the dashboard is moved to another segment by the compaction.
+	 */
+	@Override
+	public String getDashboardVersion(IRVUserContext userContext, String dashboardId) throws IOException {
+		Location location = getLocation(getScope(userContext.getUserId()), dashboardId);
+		return location == null ? null : Long.toHexString(location.timestamp) + "-" + Long.toHexString(location.crc);
+	}
+
+	@Override
+	public Long getDashboardLastModified(IRVUserContext userContext, String dashboardId) throws IOException {
+		Location location = getLocation(getScope(userContext.getUserId()), dashboardId);
+		return location == null ? null : location.timestamp;
+	}
+
+	@Override
+	protected String getDashboardsScope(String userId) {
+		return personal ? userId : null;
+	}
+
+	@Override
+	protected DashboardInfo createDashboardInfo(IRVUserContext userContext, String dashboardId) throws IOException {
+		Location location = getLocation(getScope(userContext.getUserId()), dashboardId);
+		DashboardInfo info = super.createDashboardInfo(userContext, dashboardId);
+		if (info != null && location != null) {
+			info.setLastModified(location.timestamp);
+		}
+		return info;
+	}
+
+	@Override
+	public void saveDashboard(IRVUserContext userContext, String dashboardId, InputStream dashboardStream) throws IOException {
+		ByteArrayOutputStream content = new ByteArrayOutputStream();
+		IOUtils.copy(dashboardStream, content);
+		append(TYPE_PUT, getScope(userContext.getUserId()), dashboardId, content.toByteArray());
+		dashboardChanged(userContext.getUserId(), dashboardId, ChangeEvent.Action.SAVED);
+	}
+
+	/**
+	 * Patches the dashboard holding the lock used to append records, so no other save or patch of the dashboard is lost
+	 * and the version is checked against the one being patched.
+	 */
+	@Override
+	public boolean patchDashboard(IRVUserContext userContext, String dashboardId, DashboardPatch patch, String expectedVersion) throws IOException {
+		synchronized (writeLock) {
+			return super.patchDashboard(userContext, dashboardId, patch, expectedVersion);
+		}
+	}
+
+	@Override
+	public void deleteDashboard(String userId, String dashboardId) throws IOException {
+		String scope = getScope(userId);
+		if (getLocation(scope, dashboardId) == null) {
+			return;
+		}
+		append(TYPE_DELETE, scope, dashboardId, new byte[0]);
+		dashboardChanged(userId, dashboardId, ChangeEvent.Action.DELETED);
+	}
+
+	@Override
+	protected String[] getUserDashboardIds(String userId) throws IOException {
+		Map<String, Location> locations = index.get(getScope(userId));
+		if (locations == null) {
+			return new String[0];
+		}
+		return locations.keySet().toArray(new String[0]);
+	}
+
+	/**
+	 * Sets the size after which a new segment is started, the default value is 64MB. Dashboards larger than this size
+	 * are stored in a segment of their own.
+	 */
+	public void setMaxSegmentSize(long maxSegmentSize) {
+		this.maxSegmentSize = maxSegmentSize;
+	}
+
+	/**
+	 * Sets the ratio of garbage (space used by overwritten or deleted dashboards) a segment must have to be compacted,
+	 * the default value is 0.5.
+	 */
+	public void setCompactionThreshold(double compactionThreshold) {
+		this.compactionThreshold = compactionThreshold;
+	}
+
+	/**
+	 * Sets the number of writes after which the index checkpoint is saved, the default value is {@value #DEFAULT_CHECKPOINT_INTERVAL}.
+	 * Writes after the last checkpoint are recovered from the segments when the repository is opened, so this only
+	 * affects the time required to open it.
+	 */
+	public void setCheckpointInterval(int checkpointInterval) {
+		this.checkpointInterval = checkpointInterval;
+	}
+
+	/**
+	 * If set to true each write is forced to the storage device before returning, by default writes are left to
+	 * the operating system.
+	 */
+	public void setSyncOnWrite(boolean syncOnWrite) {
+		this.syncOnWrite = syncOnWrite;
+	}
+
+	/**
+	 * Starts a background thread running {@link #compact()} with the given interval, until {@link #close()} is called.
+	 */
+	public synchronized void startCompaction(long intervalMillis) {
+		if (compactionExecutor != null) {
+			compactionExecutor.shutdown();
+		}
+		compactionExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "reveal-dashboards-compaction");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		compactionExecutor.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					compact();
+				} catch (Exception exc) {
+					log.log(Level.WARNING, "Failed to compact dashboard segments in " + dir, exc);
+				}
+			}
+		}, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Compacts all sealed segments whose ratio of garbage is above the threshold set with {@link #setCompactionThreshold(double)}.
+	 * Writes are blocked only while each live record is copied, not for the whole compaction.
+	 * @return The number of bytes reclaimed.
+	 */
+	public long compact() throws IOException {
+		long reclaimed = 0;
+		for (Segment segment : new ArrayList<Segment>(segments.values())) {
+			if (closed) {
+				break;
+			}
+			synchronized (writeLock) {
+				if (segment == activeSegment || segment.size == 0 || segment.getGarbageRatio() < compactionThreshold) {
+					continue;
+				}
+			}
+			reclaimed += compact(segment);
+		}
+		return reclaimed;
+	}
+
+	/**
+	 * Returns the total size of all segments, including the space used by overwritten and deleted dashboards.
+	 */
+	public long getTotalSize() {
+		long size = 0;
+		for (Segment segment : segments.values()) {
+			size += segment.size;
+		}
+		return size;
+	}
+
+	/**
+	 * Returns the space used by the current version of all dashboards.
+	 */
+	public long getLiveSize() {
+		long size = 0;
+		for (Segment segment : segments.values()) {
+			size += segment.liveBytes.get();
+		}
+		return size;
+	}
+
+	/**
+	 * Stops the compaction thread, saves the index checkpoint and closes all segments.
+	 */
+	@Override
+	public void close() throws IOException {
+		synchronized (this) {
+			if (compactionExecutor != null) {
+				compactionExecutor.shutdownNow();
+				compactionExecutor = null;
+			}
+		}
+		synchronized (writeLock) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			writeCheckpoint();
+			for (Segment segment : segments.values()) {
+				segment.release();
+			}
+		}
+	}
+
+	private String getScope(String userId) {
+		String scope = getDashboardsScope(userId);
+		return scope == null ? SHARED_SCOPE : scope;
+	}
+
+	private Location getLocation(String scope, String dashboardId) {
+		Map<String, Location> locations = index.get(scope);
+		return locations == null ? null : locations.get(dashboardId);
+	}
+
+	private byte[] read(String scope, String dashboardId) throws IOException {
+		for (int attempt = 0; ; attempt++) {
+			Location location = getLocation(scope, dashboardId);
+			if (location == null) {
+				return null;
+			}
+			Segment segment = segments.get(location.segment);
+			try {
+				if (segment == null) {
+					throw new ClosedChannelException();
+				}
+				ByteBuffer buffer = ByteBuffer.allocate(location.length);
+				segment.read(buffer, location.offset + location.recordLength - location.length - 4);
+				return buffer.array();
+			} catch (ClosedByInterruptException exc) {
+				// retrying would close the channel again, as the thread is still interrupted
+				throw exc;
+			} catch (ClosedChannelException exc) {
+				// the segment was compacted after getting the location, the index already points to the new one
+				if (attempt >= MAX_READ_ATTEMPTS || closed) {
+					throw exc;
+				}
+			}
+		}
+	}
+
+	private void append(byte type, String scope, String dashboardId, byte[] data) throws IOException {
+		long timestamp = System.currentTimeMillis();
+		ByteBuffer record = encode(type, timestamp, scope + '\0' + dashboardId, data);
+		synchronized (writeLock) {
+			if (closed) {
+				throw new IOException("Repository closed");
+			}
+			Location location = write(record, type, timestamp, data.length);
+			update(scope, dashboardId, location);
+			if (++writesSinceCheckpoint >= checkpointInterval) {
+				writeCheckpoint();
+			}
+		}
+	}
+
+	/**
+	 * Writes the record to the active segment, starting a new one if full. Must be called holding the write lock.
+	 */
+	private Location write(ByteBuffer record, byte type, long timestamp, int length) throws IOException {
+		Segment segment = activeSegment;
+		if (segment.size > 0 && segment.size + record.remaining() > maxSegmentSize) {
+			if (syncOnWrite) {
+				segment.force();
+			}
+			segment = createSegment(segment.id + 1);
+			activeSegment = segment;
+		}
+		long offset = segment.size;
+		int recordLength = record.remaining();
+		long crc = record.getInt(recordLength - 4) & 0xffffffffL;
+		// if the write fails the size is not updated, so the partial record is overwritten by the next one
+		segment.write(record, offset);
+		if (syncOnWrite) {
+			segment.force();
+		}
+		segment.size = offset + recordLength;
+		return type == TYPE_PUT ? new Location(segment.id, offset, recordLength, length, timestamp, crc) : null;
+	}
+
+	/**
+	 * Updates the index with the new location of the dashboard (null if deleted), keeping the count of live bytes of each segment.
+	 */
+	private void update(String scope, String dashboardId, Location location) {
+		Map<String, Location> locations = index.get(scope);
+		if (locations == null) {
+			if (location == null) {
+				return;
+			}
+			locations = new ConcurrentHashMap<String, Location>();
+			index.put(scope, locations);
+		}
+		Location previous = location == null ? locations.remove(dashboardId) : locations.put(dashboardId, location);
+		if (location != null) {
+			segments.get(location.segment).liveBytes.addAndGet(location.recordLength);
+		}
+		if (previous != null) {
+			Segment segment = segments.get(previous.segment);
+			if (segment != null) {
+				segment.liveBytes.addAndGet(-previous.recordLength);
+			}
+		}
+	}
+
+	private long compact(Segment segment) throws IOException {
+		long position = 0;
+		while (position < segment.size) {
+			Record record = readRecord(segment, position, segment.size);
+			if (record == null) {
+				break;
+			}
+			synchronized (writeLock) {
+				if (closed) {
+					return 0;
+				}
+				if (record.type == TYPE_PUT) {
+					Location current = getLocation(record.scope, record.dashboardId);
+					if (current != null && current.segment == segment.id && current.offset == position) {
+						Location location = write(encode(TYPE_PUT, record.timestamp, record.key, record.data), TYPE_PUT, record.timestamp, record.data.length);
+						update(record.scope, record.dashboardId, location);
+					}
+				} else if (getLocation(record.scope, record.dashboardId) == null && !segments.headMap(segment.id).isEmpty()) {
+					// the tombstone is still needed to hide previous versions of the dashboard in older segments
+					write(encode(TYPE_DELETE, record.timestamp, record.key, record.data), TYPE_DELETE, record.timestamp, 0);
+				}
+			}
+			position += record.length;
+		}
+		synchronized (writeLock) {
+			if (closed) {
+				return 0;
+			}
+			// the checkpoint must not reference the segment before it's deleted
+			writeCheckpoint();
+			segments.remove(segment.id);
+			segment.release();
+			Files.deleteIfExists(segment.file.toPath());
+		}
+		return segment.size;
+	}
+
+	private void open() throws IOException {
+		File[] files = dir.listFiles(new FilenameFilter() {
+			@Override
+			public boolean accept(File d, String name) {
+				return name.endsWith(SEGMENT_EXTENSION);
+			}
+		});
+		if (files != null) {
+			for (File file : files) {
+				int id;
+				try {
+					id = Integer.parseInt(file.getName().substring(0, file.getName().length() - SEGMENT_EXTENSION.length()));
+				} catch (NumberFormatException exc) {
+					continue;
+				}
+				segments.put(id, new Segment(id, file));
+			}
+		}
+		int replaySegment = segments.isEmpty() ? 0 : segments.firstKey();
+		long replayPosition = 0;
+		File checkpointFile = new File(dir, CHECKPOINT_FILE_NAME);
+		if (checkpointFile.exists()) {
+			try {
+				long[] position = readCheckpoint(checkpointFile);
+				replaySegment = (int)position[0];
+				replayPosition = position[1];
+			} catch (IOException | RuntimeException exc) {
+				log.log(Level.WARNING, "Failed to load dashboards index checkpoint, reading all segments", exc);
+				index.clear();
+				replaySegment = segments.isEmpty() ? 0 : segments.firstKey();
+				replayPosition = 0;
+			}
+		}
+		for (Segment segment : segments.tailMap(replaySegment).values()) {
+			replay(segment, segment.id == replaySegment ? replayPosition : 0, segment.id == segments.lastKey());
+		}
+		for (Map.Entry<String, Map<String, Location>> scope : index.entrySet()) {
+			for (Location location : scope.getValue().values()) {
+				Segment segment = segments.get(location.segment);
+				if (segment != null) {
+					segment.liveBytes.addAndGet(location.recordLength);
+				}
+			}
+		}
+		activeSegment = segments.isEmpty() ? createSegment(1) : segments.lastEntry().getValue();
+	}
+
+	private void replay(Segment segment, long position, boolean last) throws IOException {
+		while (position < segment.size) {
+			Record record = readRecord(segment, position, segment.size);
+			if (record == null) {
+				// incomplete or corrupted record, usually the last one written before a crash
+				log.warning("Invalid record in " + segment.file + " at " + position + ", ignoring the rest of the segment");
+				if (last) {
+					segment.truncate(position);
+				}
+				return;
+			}
+			Map<String, Location> locations = index.get(record.scope);
+			if (locations == null) {
+				locations = new ConcurrentHashMap<String, Location>();
+				index.put(record.scope, locations);
+			}
+			if (record.type == TYPE_PUT) {
+				locations.put(record.dashboardId, new Location(segment.id, position, record.length, record.data.length, record.timestamp, record.crc));
+			} else {
+				locations.remove(record.dashboardId);
+			}
+			position += record.length;
+		}
+	}
+
+	private Segment createSegment(int id) throws IOException {
+		Segment segment = new Segment(id, new File(dir, String.format("%08d", id) + SEGMENT_EXTENSION));
+		segments.put(id, segment);
+		return segment;
+	}
+
+	/**
+	 * Saves the index to the checkpoint file, must be called holding the write lock.
+	 */
+	private void writeCheckpoint() throws IOException {
+		File tmpFile = new File(dir, CHECKPOINT_FILE_NAME + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+			out.writeInt(CHECKPOINT_MAGIC);
+			out.writeInt(CHECKPOINT_VERSION);
+			out.writeInt(activeSegment.id);
+			out.writeLong(activeSegment.size);
+			List<Map.Entry<String, Map<String, Location>>> scopes = new ArrayList<Map.Entry<String, Map<String, Location>>>(index.entrySet());
+			out.writeInt(scopes.size());
+			for (Map.Entry<String, Map<String, Location>> scope : scopes) {
+				List<Map.Entry<String, Location>> locations = new ArrayList<Map.Entry<String, Location>>(scope.getValue().entrySet());
+				out.writeUTF(scope.getKey());
+				out.writeInt(locations.size());
+				for (Map.Entry<String, Location> entry : locations) {
+					Location location = entry.getValue();
+					out.writeUTF(entry.getKey());
+					out.writeInt(location.segment);
+					out.writeLong(location.offset);
+					out.writeInt(location.recordLength);
+					out.writeInt(location.length);
+					out.writeLong(location.timestamp);
+					out.writeLong(location.crc);
+				}
+			}
+		}
+		if (syncOnWrite) {
+			activeSegment.force();
+		}
+		Files.move(tmpFile.toPath(), new File(dir, CHECKPOINT_FILE_NAME).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		writesSinceCheckpoint = 0;
+	}
+
+	/**
+	 * Loads the index from the checkpoint file and returns the segment and position where the checkpoint was saved.
+	 */
+	private long[] readCheckpoint(File file) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (in.readInt() != CHECKPOINT_MAGIC || in.readInt() != CHECKPOINT_VERSION) {
+				throw new IOException("Invalid checkpoint file: " + file);
+			}
+			int segmentId = in.readInt();
+			long position = in.readLong();
+			int scopeCount = in.readInt();
+			for (int i = 0; i < scopeCount; i++) {
+				String scope = in.readUTF();
+				int count = in.readInt();
+				Map<String, Location> locations = new ConcurrentHashMap<String, Location>();
+				for (int j = 0; j < count; j++) {
+					String dashboardId = in.readUTF();
+					Location location = new Location(in.readInt(), in.readLong(), in.readInt(), in.readInt(), in.readLong(), in.readLong());
+					if (!segments.containsKey(location.segment)) {
+						throw new IOException("Segment " + location.segment + " referenced by checkpoint not found");
+					}
+					locations.put(dashboardId, location);
+				}
+				index.put(scope, locations);
+			}
+			return new long[] { segmentId, position };
+		} catch (EOFException exc) {
+			throw new IOException("Truncated checkpoint file: " + file, exc);
+		}
+	}
+
+	private static ByteBuffer encode(byte type, long timestamp, String key, byte[] data) {
+		byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+		ByteBuffer buffer = ByteBuffer.allocate(RECORD_OVERHEAD + keyBytes.length + data.length);
+		buffer.putInt(RECORD_MAGIC);
+		buffer.put(type);
+		buffer.putLong(timestamp);
+		buffer.putInt(keyBytes.length);
+		buffer.put(keyBytes);
+		buffer.putInt(data.length);
+		buffer.put(data);
+		CRC32 crc = new CRC32();
+		crc.update(buffer.array(), 4, buffer.position() - 4);
+		buffer.putInt((int)crc.getValue());
+		buffer.flip();
+		return buffer;
+	}
+
+	/**
+	 * Reads the record at the given position, returns null if the record is incomplete or corrupted.
+	 */
+	private static Record readRecord(Segment segment, long position, long size) throws IOException {
+		if (size - position < RECORD_OVERHEAD) {
+			return null;
+		}
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		segment.read(header, position);
+		header.flip();
+		if (header.getInt() != RECORD_MAGIC) {
+			return null;
+		}
+		byte type = header.get();
+		long timestamp = header.getLong();
+		int keyLength = header.getInt();
+		if ((type != TYPE_PUT && type != TYPE_DELETE) || keyLength < 0 || keyLength > size - position - RECORD_OVERHEAD) {
+			return null;
+		}
+		ByteBuffer lengthBuffer = ByteBuffer.allocate(4);
+		segment.read(lengthBuffer, position + HEADER_SIZE + keyLength);
+		int dataLength = lengthBuffer.getInt(0);
+		long length = (long)RECORD_OVERHEAD + keyLength + dataLength;
+		if (dataLength < 0 || length > size - position) {
+			return null;
+		}
+		ByteBuffer record = ByteBuffer.allocate((int)length);
+		segment.read(record, position);
+		CRC32 crc = new CRC32();
+		crc.update(record.array(), 4, (int)length - 8);
+		long storedCrc = record.getInt((int)length - 4) & 0xffffffffL;
+		if (crc.getValue() != storedCrc) {
+			return null;
+		}
+		String key = new String(record.array(), HEADER_SIZE, keyLength, StandardCharsets.UTF_8);
+		int separator = key.indexOf('\0');
+		if (separator < 0) {
+			return null;
+		}
+		byte[] data = new byte[dataLength];
+		System.arraycopy(record.array(), HEADER_SIZE + keyLength + 4, data, 0, dataLength);
+		return new Record(type, timestamp, key, key.substring(0, separator), key.substring(separator + 1), data, (int)length, storedCrc);
+	}
+
+	private static class Segment {
+		final int id;
+		final File file;
+		// replaced when closed by an interrupted thread, see reopen
+		private volatile FileChannel channel;
+		private boolean released;
+		// only modified holding the write lock
+		volatile long size;
+		final AtomicLong liveBytes = new AtomicLong();
+
+		Segment(int id, File file) throws IOException {
+			this.id = id;
+			this.file = file;
+			this.channel = openChannel(file);
+			this.size = channel.size();
+		}
+
+		private static FileChannel openChannel(File file) throws IOException {
+			return FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		}
+
+		/**
+		 * Reads the remaining bytes of the buffer from the given position.
+		 * @throws ClosedByInterruptException If the current thread was interrupted.
+		 * @throws ClosedChannelException If the segment was released, as it was compacted or the repository was closed.
+		 */
+		void read(ByteBuffer buffer, long position) throws IOException {
+			int start = buffer.position();
+			while (true) {
+				FileChannel current = channel;
+				try {
+					long p = position;
+					while (buffer.hasRemaining()) {
+						int read = current.read(buffer, p);
+						if (read < 0) {
+							throw new EOFException("Unexpected end of segment at " + p);
+						}
+						p += read;
+					}
+					return;
+				} catch (ClosedByInterruptException exc) {
+					reopen(current);
+					throw exc;
+				} catch (ClosedChannelException exc) {
+					// closed by another thread being interrupted
+					reopen(current);
+					buffer.position(start);
+				}
+			}
+		}
+
+		/**
+		 * Writes the remaining bytes of the buffer at the given position, same as {@link #read(ByteBuffer, long)}.
+		 */
+		void write(ByteBuffer buffer, long position) throws IOException {
+			int start = buffer.position();
+			while (true) {
+				FileChannel current = channel;
+				try {
+					long p = position;
+					while (buffer.hasRemaining()) {
+						p += current.write(buffer, p);
+					}
+					return;
+				} catch (ClosedByInterruptException exc) {
+					reopen(current);
+					throw exc;
+				} catch (ClosedChannelException exc) {
+					reopen(current);
+					buffer.position(start);
+				}
+			}
+		}
+
+		void force() throws IOException {
+			while (true) {
+				FileChannel current = channel;
+				try {
+					current.force(false);
+					return;
+				} catch (ClosedByInterruptException exc) {
+					reopen(current);
+					throw exc;
+				} catch (ClosedChannelException exc) {
+					reopen(current);
+				}
+			}
+		}
+
+		/**
+		 * Opens the channel again after it was closed by an interrupted thread, unless another thread already did it.
+		 * @throws ClosedChannelException If the segment was released.
+		 */
+		private synchronized void reopen(FileChannel closedChannel) throws IOException {
+			if (released) {
+				throw new ClosedChannelException();
+			}
+			if (channel == closedChannel) {
+				channel = openChannel(file);
+			}
+		}
+
+		synchronized void release() throws IOException {
+			released = true;
+			channel.close();
+		}
+
+		void truncate(long size) throws IOException {
+			channel.truncate(size);
+			this.size = size;
+		}
+
+		double getGarbageRatio() {
+			return size == 0 ? 0 : 1 - (double)liveBytes.get() / size;
+		}
+	}
+
+	private static class Location {
+		final int segment;
+		final long offset;
+		final int recordLength;
+		final int length;
+		final long timestamp;
+		final long crc;
+
+		Location(int segment, long offset, int recordLength, int length, long timestamp, long crc) {
+			this.segment = segment;
+			this.offset = offset;
+			this.recordLength = recordLength;
+			this.length = length;
+			this.timestamp = timestamp;
+			this.crc = crc;
+		}
+	}
+
+	private static class Record {
+		final byte type;
+		final long timestamp;
+		final String key;
+		final String scope;
+		final String dashboardId;
+		final byte[] data;
+		final int length;
+		final long crc;
+
+		Record(byte type, long timestamp, String key, String scope, String dashboardId, byte[] data, int length, long crc) {
+			this.type = type;
+			this.timestamp = timestamp;
+			this.key = key;
+			this.scope = scope;
+			this.dashboardId = dashboardId;
+			this.data = data;
+			this.length = length;
+			this.crc = crc;
+		}
+	}
+}
@@ -0,0 +1,121 @@
+package io.revealbi.sdk.ext.fs;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache of memory-mapped dashboard files, used by {@link FileSystemDashboardRepository} to serve the most recently used
+ * dashboards directly from the OS page cache, without read calls or copies to the heap. As mappings use the page cache,
+ * the memory is shared with other processes reading the same files.
+ * Each mapping is validated against the size, last modified time and file key (inode) of the file before being used, so
+ * a file replaced or modified externally is mapped again. Mappings removed from the cache are released by the garbage
+ * collector, as Java doesn't provide a way to unmap them explicitly.
+ * Files must be replaced instead of truncated or written in place while mapped (which is what the repository does),
+ * as accessing a mapped region after the file was truncated causes an error.
+ * As mappings are released only when collected, this cache requires a POSIX file system (see {@link #isSupported()}):
+ * in others, like Windows, a mapped file can't be replaced or deleted, so saving or deleting a recently read dashboard
+ * would fail until the garbage collector releases its mapping.
+ */
+public class MappedDashboardCache {
+	private final long minFileSize;
+	private final Map<String, Mapping> mappings;
+
+	/**
+	 * Creates a new cache.
+	 * @param maxMappings The maximum number of files kept mapped, the least recently used ones are released first.
+	 * @param minFileSize The minimum size of the files to map, smaller files are cheaper to read than to map.
+	 */
+	public MappedDashboardCache(final int maxMappings, long minFileSize) {
+		this.minFileSize = minFileSize;
+		this.mappings = new LinkedHashMap<String, Mapping>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Mapping> eldest) {
+				return size() > maxMappings;
+			}
+		};
+	}
+
+	/**
+	 * Returns true if mapped files can be replaced and deleted, which is required to use this cache.
+	 */
+	public static boolean isSupported() {
+		return FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+	}
+
+	/**
+	 * Returns a read-only buffer with the content of the given file, mapping it if not already mapped.
+	 * @return The buffer, or null if the file is smaller than the minimum size to map it.
+	 */
+	public ByteBuffer getBuffer(File file) throws IOException {
+		BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+		if (attributes.size() < minFileSize || attributes.size() == 0 || attributes.size() > Integer.MAX_VALUE) {
+			return null;
+		}
+		String key = file.getAbsolutePath();
+		synchronized (mappings) {
+			Mapping mapping = mappings.get(key);
+			if (mapping != null && mapping.matches(attributes)) {
+				return mapping.buffer.asReadOnlyBuffer();
+			}
+		}
+		MappedByteBuffer buffer;
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, attributes.size());
+		}
+		synchronized (mappings) {
+			mappings.put(key, new Mapping(buffer, attributes));
+		}
+		return buffer.asReadOnlyBuffer();
+	}
+
+	/**
+	 * Releases the mapping for the given file, called before the file is replaced or deleted.
+	 */
+	public void release(File file) {
+		synchronized (mappings) {
+			mappings.remove(file.getAbsolutePath());
+		}
+	}
+
+	public void clear() {
+		synchronized (mappings) {
+			mappings.clear();
+		}
+	}
+
+	public int getMappingCount() {
+		synchronized (mappings) {
+			return mappings.size();
+		}
+	}
+
+	private static class Mapping {
+		final MappedByteBuffer buffer;
+		final long size;
+		final long lastModified;
+		final Object fileKey;
+
+		Mapping(MappedByteBuffer buffer, BasicFileAttributes attributes) {
+			this.buffer = buffer;
+			this.size = attributes.size();
+			this.lastModified = attributes.lastModifiedTime().toMillis();
+			this.fileKey = attributes.fileKey();
+		}
+
+		boolean matches(BasicFileAttributes attributes) {
+			return size == attributes.size() && lastModified == attributes.lastModifiedTime().toMillis() &&
+					(fileKey == null || fileKey.equals(attributes.fileKey()));
+		}
+	}
+}
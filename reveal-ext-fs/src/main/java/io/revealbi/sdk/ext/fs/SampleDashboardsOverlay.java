@@ -0,0 +1,222 @@
+package io.revealbi.sdk.ext.fs;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.infragistics.controls.IOUtils;
+
+/**
+ * Read-only layer of sample dashboards served directly from classpath resources, used by {@link FileSystemDashboardRepository}
+ * to make sample dashboards visible to all users without copying them to each user directory.
+ * The content of each dashboard is loaded from the classpath the first time it's requested and then kept in memory.
+ * When a user saves a sample dashboard a regular file is created in the user directory, hiding the sample dashboard.
+ * When a user deletes a sample dashboard its id is added to the "{@value #HIDDEN_FILE_NAME}" file in the user directory,
+ * so it's no longer listed for that user. The hidden ids are cached for the {@value #MAX_CACHED_DIRS} most recently used
+ * directories, and read again from that file when needed.
+ */
+public class SampleDashboardsOverlay {
+	public static final String HIDDEN_FILE_NAME = ".hidden-samples";
+	public static final int MAX_CACHED_DIRS = 1000;
+
+	private final Class<?> clazz;
+	private final Map<String, String> resources = new LinkedHashMap<String, String>();
+	private final Map<String, Sample> samples = new ConcurrentHashMap<String, Sample>();
+	private final Map<String, Set<String>> hiddenIds = new LinkedHashMap<String, Set<String>>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Set<String>> eldest) {
+			return size() > MAX_CACHED_DIRS;
+		}
+	};
+
+	/**
+	 * Creates a new overlay.
+	 * @param clazz The class used to load resources.
+	 * @param resources The path of the resources, the file name (without extension) is used as the dashboard id.
+	 */
+	public SampleDashboardsOverlay(Class<?> clazz, String[] resources) {
+		this.clazz = clazz;
+		for (String resource : resources) {
+			this.resources.put(getDashboardId(resource), resource);
+		}
+	}
+
+	public boolean isSample(String dashboardId) {
+		return resources.containsKey(dashboardId);
+	}
+
+	/**
+	 * Adds to the given set the ids of the sample dashboards visible in the given directory.
+	 */
+	public void listDashboardIds(File dir, Set<String> ids) throws IOException {
+		Set<String> hidden = getHiddenIds(dir);
+		for (String dashboardId : resources.keySet()) {
+			if (!hidden.contains(dashboardId)) {
+				ids.add(dashboardId);
+			}
+		}
+	}
+
+	/**
+	 * Returns true if the given sample dashboard is visible in the given directory, which means it's a sample dashboard
+	 * and it was not deleted by the user.
+	 */
+	public boolean isVisible(File dir, String dashboardId) throws IOException {
+		return isSample(dashboardId) && !getHiddenIds(dir).contains(dashboardId);
+	}
+
+	public InputStream getDashboard(String dashboardId) throws IOException {
+		Sample sample = getSample(dashboardId);
+		return sample == null ? null : new ByteArrayInputStream(sample.content);
+	}
+
+	/**
+	 * Returns the version of the sample dashboard, the hash of its content.
+	 */
+	public String getDashboardVersion(String dashboardId) throws IOException {
+		Sample sample = getSample(dashboardId);
+		return sample == null ? null : sample.version;
+	}
+
+	/**
+	 * Returns the summary extracted from the sample dashboard, if already set with {@link #setSummary(String, Map)}.
+	 */
+	public Map<String, Object> getSummary(String dashboardId) throws IOException {
+		Sample sample = getSample(dashboardId);
+		return sample == null ? null : sample.summary;
+	}
+
+	public void setSummary(String dashboardId, Map<String, Object> summary) throws IOException {
+		Sample sample = getSample(dashboardId);
+		if (sample != null) {
+			sample.summary = summary;
+		}
+	}
+
+	/**
+	 * Hides the given sample dashboard in the given directory, called when the dashboard is deleted by the user.
+	 */
+	public void hide(File dir, String dashboardId) throws IOException {
+		if (!isSample(dashboardId)) {
+			return;
+		}
+		// the file is written under the same lock used to load it, so a set evicted and loaded again is never stale
+		synchronized (hiddenIds) {
+			Set<String> hidden = getHiddenIds(dir);
+			if (hidden.add(dashboardId)) {
+				saveHiddenIds(dir, hidden);
+			}
+		}
+	}
+
+	/**
+	 * Makes the sample dashboard visible again, called when a dashboard with the same id is saved by the user.
+	 */
+	public void unhide(File dir, String dashboardId) throws IOException {
+		if (!isSample(dashboardId)) {
+			return;
+		}
+		synchronized (hiddenIds) {
+			Set<String> hidden = getHiddenIds(dir);
+			if (hidden.remove(dashboardId)) {
+				saveHiddenIds(dir, hidden);
+			}
+		}
+	}
+
+	private Set<String> getHiddenIds(File dir) throws IOException {
+		String key = dir.getAbsolutePath();
+		synchronized (hiddenIds) {
+			Set<String> hidden = hiddenIds.get(key);
+			if (hidden == null) {
+				hidden = Collections.synchronizedSet(new HashSet<String>());
+				File file = new File(dir, HIDDEN_FILE_NAME);
+				if (file.exists()) {
+					for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+						if (!line.trim().isEmpty()) {
+							hidden.add(line.trim());
+						}
+					}
+				}
+				hiddenIds.put(key, hidden);
+			}
+			return hidden;
+		}
+	}
+
+	private static void saveHiddenIds(File dir, Set<String> hidden) throws IOException {
+		dir.mkdirs();
+		List<String> lines;
+		synchronized (hidden) {
+			lines = new ArrayList<String>(hidden);
+		}
+		Files.write(new File(dir, HIDDEN_FILE_NAME).toPath(), lines, StandardCharsets.UTF_8);
+	}
+
+	private Sample getSample(String dashboardId) throws IOException {
+		Sample sample = samples.get(dashboardId);
+		if (sample != null) {
+			return sample;
+		}
+		String resource = resources.get(dashboardId);
+		if (resource == null) {
+			return null;
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (InputStream in = clazz.getResourceAsStream(resource)) {
+			if (in == null) {
+				throw new IOException("Resource " + resource + " for sample dashboard not found");
+			}
+			IOUtils.copy(in, out);
+		}
+		sample = new Sample(out.toByteArray());
+		samples.put(dashboardId, sample);
+		return sample;
+	}
+
+	private static String getDashboardId(String resource) {
+		String name = new File(resource).getName();
+		int lastDot = name.lastIndexOf('.');
+		return lastDot > 0 ? name.substring(0, lastDot) : name;
+	}
+
+	private static class Sample {
+		final byte[] content;
+		final String version;
+		volatile Map<String, Object> summary;
+
+		Sample(byte[] content) {
+			this.content = content;
+			this.version = "sample-" + getHash(content);
+		}
+
+		private static String getHash(byte[] content) {
+			try {
+				byte[] hash = MessageDigest.getInstance("SHA-256").digest(content);
+				StringBuilder sb = new StringBuilder();
+				for (int i = 0; i < 8; i++) {
+					sb.append(String.format("%02x", hash[i]));
+				}
+				return sb.toString();
+			} catch (NoSuchAlgorithmException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+}
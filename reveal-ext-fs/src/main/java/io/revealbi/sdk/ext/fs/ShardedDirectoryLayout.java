@@ -0,0 +1,134 @@
+package io.revealbi.sdk.ext.fs;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+
+/**
+ * Helper methods for the sharded directory layout used by {@link FileSystemDashboardRepository}.
+ * In the sharded layout dashboards are not stored directly in the dashboards directory but in two levels of
+ * subdirectories named after the hash of the dashboard id, like: {@code {dir}/3f/a2/{dashboardId}.rdash}, so no
+ * single directory contains more than a small fraction of the dashboards.
+ * Methods listing dashboards always include dashboards in both layouts (flat and sharded), so a repository can
+ * be migrated from one layout to the other while it's being used.
+ */
+public final class ShardedDirectoryLayout {
+	static final String EXTENSION = ".rdash";
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private ShardedDirectoryLayout() {
+	}
+
+	/**
+	 * Returns the file for the given dashboard in the given directory, using the sharded or the flat layout.
+	 */
+	public static File getDashboardFile(File dir, String dashboardId, boolean sharded) {
+		if (!sharded) {
+			return new File(dir, dashboardId + EXTENSION);
+		}
+		String[] shards = getShards(dashboardId);
+		return new File(new File(new File(dir, shards[0]), shards[1]), dashboardId + EXTENSION);
+	}
+
+	/**
+	 * Returns the dashboards directory containing the given dashboard file, for files in the sharded layout this is
+	 * the directory two levels above the parent of the file.
+	 */
+	public static File getDashboardsDir(File file, String dashboardId) {
+		File dir = file.getParentFile();
+		String[] shards = getShards(dashboardId);
+		File parent = dir.getParentFile();
+		if (parent != null && dir.getName().equals(shards[1]) && parent.getName().equals(shards[0])) {
+			return parent.getParentFile();
+		}
+		return dir;
+	}
+
+	/**
+	 * Adds to the given collection the ids of all dashboards in the directory, both in the flat and the sharded layout.
+	 */
+	public static void listDashboardIds(File dir, Collection<String> ids) {
+		File[] files = dir.listFiles();
+		if (files == null) {
+			return;
+		}
+		for (File f : files) {
+			String name = f.getName();
+			if (f.isDirectory()) {
+				if (isShardName(name)) {
+					listShard(f, name, ids);
+				}
+				continue;
+			}
+			if (f.canRead() && name.endsWith(EXTENSION)) {
+				ids.add(getDashboardId(name));
+			}
+		}
+	}
+
+	private static void listShard(File shardDir, String shard, Collection<String> ids) {
+		File[] subdirs = shardDir.listFiles();
+		if (subdirs == null) {
+			return;
+		}
+		for (File subdir : subdirs) {
+			String subshard = subdir.getName();
+			if (!isShardName(subshard) || !subdir.isDirectory()) {
+				continue;
+			}
+			File[] files = subdir.listFiles();
+			if (files == null) {
+				continue;
+			}
+			for (File f : files) {
+				String name = f.getName();
+				if (f.isDirectory() || !f.canRead() || !name.endsWith(EXTENSION)) {
+					continue;
+				}
+				String dashboardId = getDashboardId(name);
+				// ignore files not matching the hash, like dashboards for a user whose directory is named like a shard
+				String[] shards = getShards(dashboardId);
+				if (shards[0].equals(shard) && shards[1].equals(subshard)) {
+					ids.add(dashboardId);
+				}
+			}
+		}
+	}
+
+	static String getDashboardId(String fileName) {
+		if (fileName.endsWith(EXTENSION)) {
+			return fileName.substring(0, fileName.length() - EXTENSION.length());
+		}
+		return fileName;
+	}
+
+	private static boolean isShardName(String name) {
+		if (name.length() != 2) {
+			return false;
+		}
+		for (int i = 0; i < 2; i++) {
+			char c = name.charAt(i);
+			if (!((c >= '0' && c <= '9') || (c >= 'a' && c <= 'f'))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static String[] getShards(String dashboardId) {
+		byte[] hash;
+		try {
+			hash = MessageDigest.getInstance("SHA-1").digest(dashboardId.getBytes(StandardCharsets.UTF_8));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		return new String[] { toHex(hash[0]), toHex(hash[1]) };
+	}
+
+	private static String toHex(byte b) {
+		return new String(new char[] { HEX[(b >> 4) & 0xF], HEX[b & 0xF] });
+	}
+}
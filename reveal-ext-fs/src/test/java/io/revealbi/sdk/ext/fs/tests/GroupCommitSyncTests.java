@@ -0,0 +1,135 @@
+package io.revealbi.sdk.ext.fs.tests;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import io.revealbi.sdk.ext.fs.GroupCommitSync;
+
+public class GroupCommitSyncTests {
+
+	@Test
+	public void testInterruptedWaiterNotSynced() throws Exception {
+		Path dir = Files.createTempDirectory("sync");
+		Path first = Files.createFile(dir.resolve("first"));
+		Path interrupted = Files.createFile(dir.resolve("interrupted"));
+		Path other = Files.createFile(dir.resolve("other"));
+		BlockingSync sync = new BlockingSync(first);
+
+		SyncThread leader = new SyncThread(sync, first);
+		leader.start();
+		assertTrue(sync.blocked.await(10, TimeUnit.SECONDS));
+		SyncThread waiter = new SyncThread(sync, interrupted);
+		waiter.start();
+		awaitWaiting(waiter);
+		waiter.interrupt();
+		waiter.join();
+		assertTrue(waiter.error.get() instanceof InterruptedIOException);
+		// like a save deleting its temporary file when the sync fails
+		Files.delete(interrupted);
+
+		SyncThread concurrent = new SyncThread(sync, other);
+		concurrent.start();
+		awaitWaiting(concurrent);
+		sync.release.countDown();
+		leader.join();
+		concurrent.join();
+		assertNull(leader.error.get());
+		assertNull(concurrent.error.get());
+	}
+
+	@Test
+	public void testErrorsReportedPerPath() throws Exception {
+		Path dir = Files.createTempDirectory("sync");
+		Path first = Files.createFile(dir.resolve("first"));
+		Path missing = dir.resolve("missing");
+		Path other = Files.createFile(dir.resolve("other"));
+		BlockingSync sync = new BlockingSync(first);
+
+		SyncThread leader = new SyncThread(sync, first);
+		leader.start();
+		assertTrue(sync.blocked.await(10, TimeUnit.SECONDS));
+		// both are synced in the same batch, once the leader finishes
+		SyncThread failing = new SyncThread(sync, missing);
+		failing.start();
+		awaitWaiting(failing);
+		SyncThread concurrent = new SyncThread(sync, other);
+		concurrent.start();
+		awaitWaiting(concurrent);
+		sync.release.countDown();
+		leader.join();
+		failing.join();
+		concurrent.join();
+		assertNull(leader.error.get());
+		assertTrue(failing.error.get() instanceof IOException);
+		assertNull(concurrent.error.get());
+		assertTrue(sync.forced.toString().contains(other.toString()));
+	}
+
+	private static void awaitWaiting(Thread thread) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10000;
+		while (thread.getState() != Thread.State.WAITING) {
+			if (System.currentTimeMillis() > deadline) {
+				throw new AssertionError("Thread is not waiting: " + thread.getState());
+			}
+			Thread.sleep(5);
+		}
+	}
+
+	/**
+	 * Sync blocking while forcing the given path, so other requests wait for the next batch.
+	 */
+	private static class BlockingSync extends GroupCommitSync {
+		final CountDownLatch blocked = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final StringBuffer forced = new StringBuffer();
+		private final Path blockingPath;
+
+		BlockingSync(Path blockingPath) {
+			this.blockingPath = blockingPath;
+		}
+
+		@Override
+		protected void force(Path path) throws IOException {
+			if (path.equals(blockingPath)) {
+				blocked.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					throw new InterruptedIOException();
+				}
+			}
+			super.force(path);
+			forced.append(path).append('\n');
+		}
+	}
+
+	private static class SyncThread extends Thread {
+		final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+		private final GroupCommitSync sync;
+		private final Path path;
+
+		SyncThread(GroupCommitSync sync, Path path) {
+			this.sync = sync;
+			this.path = path;
+		}
+
+		@Override
+		public void run() {
+			try {
+				sync.sync(path);
+			} catch (Throwable exc) {
+				error.set(exc);
+			}
+		}
+	}
+}
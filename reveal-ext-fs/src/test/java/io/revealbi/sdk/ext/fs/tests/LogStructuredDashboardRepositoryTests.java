@@ -0,0 +1,201 @@
+package io.revealbi.sdk.ext.fs.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import com.infragistics.reveal.sdk.api.IRVUserContext;
+
+import io.revealbi.sdk.ext.fs.LogStructuredDashboardRepository;
+
+public class LogStructuredDashboardRepositoryTests {
+	private static final IRVUserContext USER = new IRVUserContext() {
+		@Override
+		public String getUserId() {
+			return "user";
+		}
+
+		@Override
+		public Map<String, Object> getProperties() {
+			return null;
+		}
+	};
+
+	@Test
+	public void testRecoveryAfterTruncatedTail() throws IOException {
+		File dir = Files.createTempDirectory("lsr").toFile();
+		LogStructuredDashboardRepository repository = new LogStructuredDashboardRepository(dir.getPath(), false);
+		repository.saveDashboard(USER, "d1", toStream("first"));
+		repository.saveDashboard(USER, "d2", toStream("second"));
+		repository.close();
+
+		// simulates a crash while writing the last record, before any checkpoint was saved
+		new File(dir, "index.checkpoint").delete();
+		File segment = getSegments(dir)[0];
+		try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+			file.setLength(file.length() - 3);
+		}
+
+		repository = new LogStructuredDashboardRepository(dir.getPath(), false);
+		assertEquals("first", read(repository, "d1"));
+		assertNull(repository.getDashboard(USER, "d2"));
+		repository.saveDashboard(USER, "d3", toStream("third"));
+		repository.close();
+
+		repository = new LogStructuredDashboardRepository(dir.getPath(), false);
+		assertEquals("first", read(repository, "d1"));
+		assertEquals("third", read(repository, "d3"));
+		repository.close();
+	}
+
+	@Test
+	public void testDeleteSurvivesRestart() throws IOException {
+		File dir = Files.createTempDirectory("lsr").toFile();
+		LogStructuredDashboardRepository repository = new LogStructuredDashboardRepository(dir.getPath(), false);
+		// a segment for each record
+		repository.setMaxSegmentSize(1);
+		repository.saveDashboard(USER, "d1", toStream("first"));
+		repository.saveDashboard(USER, "d2", toStream("second"));
+		repository.deleteDashboard(USER, "d1");
+		repository.saveDashboard(USER, "d3", toStream("third"));
+		repository.close();
+
+		repository = new LogStructuredDashboardRepository(dir.getPath(), false);
+		assertNull(repository.getDashboard(USER, "d1"));
+		repository.setMaxSegmentSize(1);
+		// the segment with the first version of d1 is deleted, the tombstone is copied as d2 is still in an older segment
+		assertTrue(repository.compact() > 0);
+		assertNull(repository.getDashboard(USER, "d1"));
+		repository.close();
+
+		// without checkpoint all segments are read
+		new File(dir, "index.checkpoint").delete();
+		repository = new LogStructuredDashboardRepository(dir.getPath(), false);
+		assertNull(repository.getDashboard(USER, "d1"));
+		assertEquals("second", read(repository, "d2"));
+		assertEquals("third", read(repository, "d3"));
+		repository.close();
+	}
+
+	@Test
+	public void testCompactionWithConcurrentReads() throws Exception {
+		File dir = Files.createTempDirectory("lsr").toFile();
+		final LogStructuredDashboardRepository repository = new LogStructuredDashboardRepository(dir.getPath(), false);
+		repository.setMaxSegmentSize(512);
+		final Map<String, String> expected = new ConcurrentHashMap<String, String>();
+		for (int i = 0; i < 20; i++) {
+			repository.saveDashboard(USER, "d" + i, toStream("v0-" + i));
+			expected.put("d" + i, "v0-" + i);
+		}
+		final AtomicBoolean done = new AtomicBoolean();
+		final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+		Thread[] readers = new Thread[4];
+		for (int t = 0; t < readers.length; t++) {
+			readers[t] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						while (!done.get()) {
+							for (int i = 0; i < 20; i++) {
+								String content = read(repository, "d" + i);
+								if (content == null || !content.endsWith("-" + i)) {
+									throw new AssertionError("Unexpected content for d" + i + ": " + content);
+								}
+							}
+						}
+					} catch (Throwable exc) {
+						error.set(exc);
+					}
+				}
+			});
+			readers[t].start();
+		}
+		for (int version = 1; version <= 20; version++) {
+			for (int i = 0; i < 20; i++) {
+				repository.saveDashboard(USER, "d" + i, toStream("v" + version + "-" + i));
+				expected.put("d" + i, "v" + version + "-" + i);
+			}
+			repository.compact();
+		}
+		done.set(true);
+		for (Thread reader : readers) {
+			reader.join();
+		}
+		if (error.get() != null) {
+			throw new AssertionError(error.get());
+		}
+		for (Map.Entry<String, String> entry : expected.entrySet()) {
+			assertEquals(entry.getValue(), read(repository, entry.getKey()));
+		}
+		assertTrue(repository.getTotalSize() < 20 * 20 * 64);
+		repository.close();
+	}
+
+	@Test
+	public void testInterruptedReaderDoesNotCloseSegments() throws IOException {
+		File dir = Files.createTempDirectory("lsr").toFile();
+		LogStructuredDashboardRepository repository = new LogStructuredDashboardRepository(dir.getPath(), false);
+		repository.saveDashboard(USER, "d1", toStream("first"));
+		Thread.currentThread().interrupt();
+		try {
+			repository.getDashboard(USER, "d1");
+			fail("expected ClosedByInterruptException");
+		} catch (ClosedByInterruptException exc) {
+		} finally {
+			Thread.interrupted();
+		}
+		// the channel closed by the interrupted read is opened again, both for reads and for appends to the active segment
+		assertEquals("first", read(repository, "d1"));
+		repository.saveDashboard(USER, "d2", toStream("second"));
+		assertEquals("second", read(repository, "d2"));
+		repository.close();
+	}
+
+	private static File[] getSegments(File dir) {
+		File[] files = dir.listFiles();
+		int count = 0;
+		for (File file : files) {
+			if (file.getName().endsWith(".seg")) {
+				files[count++] = file;
+			}
+		}
+		File[] segments = new File[count];
+		System.arraycopy(files, 0, segments, 0, count);
+		return segments;
+	}
+
+	private static InputStream toStream(String content) {
+		return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static String read(LogStructuredDashboardRepository repository, String dashboardId) throws IOException {
+		InputStream in = repository.getDashboard(USER, dashboardId);
+		if (in == null) {
+			return null;
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[1024];
+		int read;
+		while ((read = in.read(buffer)) != -1) {
+			out.write(buffer, 0, read);
+		}
+		return new String(out.toByteArray(), StandardCharsets.UTF_8);
+	}
+}
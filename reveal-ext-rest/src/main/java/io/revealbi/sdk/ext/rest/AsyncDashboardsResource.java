@@ -0,0 +1,146 @@
+package io.revealbi.sdk.ext.rest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.CompletionStage;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import javax.ws.rs.DELETE;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+
+import com.infragistics.reveal.sdk.api.IRVUserContext;
+import com.infragistics.reveal.sdk.api.model.RVDashboardDocument;
+import com.infragistics.reveal.sdk.util.RVSerializationUtilities;
+
+import io.revealbi.sdk.ext.api.AsyncDashboardRepositoryAdapter;
+import io.revealbi.sdk.ext.api.AsyncDashboardRepositoryFactory;
+import io.revealbi.sdk.ext.api.DashboardInfo;
+import io.revealbi.sdk.ext.api.IAsyncDashboardRepository;
+import io.revealbi.sdk.ext.api.IAuthorizationProvider;
+
+/**
+ * Asynchronous version of the main operations in {@link DashboardsResource}, using {@link IAsyncDashboardRepository} so
+ * request threads are released while dashboards are loaded from storage.
+ * The user context and permissions are resolved before suspending the request, as the request context can't be used
+ * from other threads.
+ */
+@Path("/dashboards/async")
+public class AsyncDashboardsResource extends BaseResource {
+	protected IAsyncDashboardRepository getDashboardRepository() {
+		return AsyncDashboardRepositoryFactory.getInstance();
+	}
+
+	@GET
+	@Produces(MediaType.APPLICATION_JSON)
+	public void getDashboards(@Suspended AsyncResponse asyncResponse) {
+		checkDashboardsPermission(IAuthorizationProvider.DashboardsActionType.LIST);
+
+		IRVUserContext userContext = getUserContext();
+		resume(asyncResponse, getDashboardRepository().getUserDashboardsAsync(userContext), new Function<DashboardInfo[], Object>() {
+			@Override
+			public Object apply(DashboardInfo[] dashboards) {
+				return dashboards;
+			}
+		});
+	}
+
+	@GET
+	@Produces(MediaType.APPLICATION_JSON)
+	@Path("/{dashboardId}")
+	public void getDashboardJson(@PathParam("dashboardId") String dashboardId, @Suspended AsyncResponse asyncResponse) {
+		checkDashboardPermission(dashboardId, IAuthorizationProvider.DashboardActionType.READ);
+
+		IRVUserContext userContext = getUserContext();
+		resume(asyncResponse, getDashboardRepository().getDashboardAsync(userContext, dashboardId), new Function<InputStream, Object>() {
+			@Override
+			public Object apply(InputStream rdashStream) {
+				if (rdashStream == null) {
+					throw new WebApplicationException(Response.Status.NOT_FOUND);
+				}
+				RVDashboardDocument doc;
+				try (InputStream in = rdashStream) {
+					doc = RVSerializationUtilities.getDashboardDocument(in);
+				} catch (Exception exc) {
+					throw new WebApplicationException(exc);
+				}
+				if (doc == null) {
+					throw new WebApplicationException(Response.Status.NOT_FOUND);
+				}
+				return doc.toJson();
+			}
+		});
+	}
+
+	@GET
+	@Produces(MediaType.APPLICATION_OCTET_STREAM)
+	@Path("/export/{dashboardId}")
+	public void getDashboard(@PathParam("dashboardId") String dashboardId, @Suspended AsyncResponse asyncResponse) {
+		checkDashboardPermission(dashboardId, IAuthorizationProvider.DashboardActionType.READ);
+
+		IRVUserContext userContext = getUserContext();
+		resume(asyncResponse, getDashboardRepository().getDashboardAsync(userContext, dashboardId), new Function<InputStream, Object>() {
+			@Override
+			public Object apply(InputStream rdashStream) {
+				if (rdashStream == null) {
+					throw new WebApplicationException(Response.Status.NOT_FOUND);
+				}
+				StreamingOutput output = new StreamingOutput() {
+					@Override
+					public void write(OutputStream output) throws IOException, WebApplicationException {
+						try (InputStream in = rdashStream) {
+							RVSerializationUtilities.copyStream(in, output);
+						}
+					}
+				};
+				return Response.
+						ok(output, MediaType.APPLICATION_OCTET_STREAM).
+						header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + dashboardId + ".rdash").
+						build();
+			}
+		});
+	}
+
+	@DELETE
+	@Path("/{dashboardId}")
+	public void deleteDashboard(@PathParam("dashboardId") String dashboardId, @Suspended AsyncResponse asyncResponse) {
+		checkDashboardPermission(dashboardId, IAuthorizationProvider.DashboardActionType.DELETE);
+
+		IRVUserContext userContext = getUserContext();
+		resume(asyncResponse, getDashboardRepository().deleteDashboardAsync(userContext, dashboardId), new Function<Void, Object>() {
+			@Override
+			public Object apply(Void result) {
+				DashboardsResource.removeCachedJson(userContext.getUserId(), dashboardId);
+				return Response.noContent().build();
+			}
+		});
+	}
+
+	/**
+	 * Resumes the request once the stage completes, with the entity (or response) returned by the mapper or with the exception
+	 * that completed the stage.
+	 */
+	private static <T> void resume(AsyncResponse asyncResponse, CompletionStage<T> stage, Function<T, Object> mapper) {
+		stage.thenApply(mapper).whenComplete(new BiConsumer<Object, Throwable>() {
+			@Override
+			public void accept(Object entity, Throwable exc) {
+				if (exc != null) {
+					asyncResponse.resume(AsyncDashboardRepositoryAdapter.unwrap(exc));
+				} else {
+					asyncResponse.resume(entity);
+				}
+			}
+		});
+	}
+}
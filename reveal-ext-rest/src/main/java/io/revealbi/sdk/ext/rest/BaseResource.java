@@ -1,5 +1,9 @@
 package io.revealbi.sdk.ext.rest;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.container.ContainerRequestContext;
 import javax.ws.rs.core.Context;
@@ -31,4 +35,21 @@ public abstract class BaseResource {
 			throw new WebApplicationException(Status.FORBIDDEN);
 		}
 	}
+	
+	/**
+	 * Returns the given dashboard ids the user has permission for, without duplicates and in the same order.
+	 */
+	protected static List<String> getAuthorizedIds(IRVUserContext userContext, List<String> ids, IAuthorizationProvider.DashboardActionType action) {
+		if (ids == null) {
+			throw new WebApplicationException(Status.BAD_REQUEST);
+		}
+		IAuthorizationProvider authorization = AuthorizationProviderFactory.getInstance();
+		List<String> result = new ArrayList<String>();
+		for (String id : new LinkedHashSet<String>(ids)) {
+			if (authorization.hasDashboardPermission(userContext, id, action)) {
+				result.add(id);
+			}
+		}
+		return result;
+	}
 }
@@ -0,0 +1,203 @@
+package io.revealbi.sdk.ext.rest;
+
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.sse.OutboundSseEvent;
+import javax.ws.rs.sse.Sse;
+import javax.ws.rs.sse.SseEventSink;
+
+import io.revealbi.sdk.ext.api.ChangeEvent;
+import io.revealbi.sdk.ext.api.ChangesPage;
+import io.revealbi.sdk.ext.api.IAuthorizationProvider;
+import io.revealbi.sdk.ext.base.ChangeLog;
+
+/**
+ * Returns the changes made to dashboards and data sources since a given token (see {@link ChangeLog}), so clients can
+ * keep their lists up to date without requesting the full lists again:
+ * <ul>
+ * <li>GET /changes?since={token}: returns the changes after the token, the first request is made without a token and
+ * returns only the current one, after loading the full lists. When "reset" is true in the response the client must load
+ * the full lists again.</li>
+ * <li>GET /changes/stream?since={token}: Server-Sent Events stream with the changes after the token, and then with each
+ * change as it's made. The id of each event is the token to use to resume the stream, sent in the "Last-Event-ID" header
+ * when reconnecting. A comment is sent every {@value #HEARTBEAT_INTERVAL_SECONDS} seconds to keep the connection open
+ * and to detect closed connections, which are then removed from the listeners of the log.</li>
+ * </ul>
+ */
+@Path("/changes")
+public class ChangesResource extends BaseResource {
+	private static final int DEFAULT_MAX_RESULTS = 1000;
+	private static final int MAX_RESULTS = 10000;
+	private static final String LAST_EVENT_ID_HEADER = "Last-Event-ID";
+	private static final String CHANGE_EVENT = "change";
+	private static final String RESET_EVENT = "reset";
+	private static final long HEARTBEAT_INTERVAL_SECONDS = 30;
+	
+	private static ScheduledExecutorService heartbeatExecutor;
+
+	protected ChangeLog getChangeLog() {
+		ChangeLog changeLog = ChangeLog.getInstance();
+		if (changeLog == null) {
+			throw new WebApplicationException(Response.Status.NOT_FOUND);
+		}
+		return changeLog;
+	}
+
+	@GET
+	@Produces(MediaType.APPLICATION_JSON)
+	public ChangesPage getChanges(@QueryParam("since") String since, @QueryParam("limit") @DefaultValue("" + DEFAULT_MAX_RESULTS) int maxResults) {
+		checkDashboardsPermission(IAuthorizationProvider.DashboardsActionType.LIST);
+
+		if (maxResults <= 0 || maxResults > MAX_RESULTS) {
+			throw new WebApplicationException(Response.Status.BAD_REQUEST);
+		}
+		return getChangeLog().getChanges(getUserContext().getUserId(), since, maxResults);
+	}
+
+	@GET
+	@Produces(MediaType.SERVER_SENT_EVENTS)
+	@Path("/stream")
+	public void streamChanges(@QueryParam("since") String since, @HeaderParam(LAST_EVENT_ID_HEADER) String lastEventId,
+			@Context SseEventSink sink, @Context Sse sse) {
+		checkDashboardsPermission(IAuthorizationProvider.DashboardsActionType.LIST);
+
+		ChangeLog changeLog = getChangeLog();
+		ChangeStream stream = new ChangeStream(changeLog, getUserContext().getUserId(), sink, sse);
+		// the listener is added before sending previous changes so no change is missed, changes already sent are skipped
+		changeLog.addListener(stream);
+		stream.start(lastEventId != null ? lastEventId : since);
+	}
+	
+	private static synchronized ScheduledExecutorService getHeartbeatExecutor() {
+		if (heartbeatExecutor == null) {
+			heartbeatExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "change-stream-heartbeat");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return heartbeatExecutor;
+	}
+
+	private static class ChangeStream implements ChangeLog.Listener {
+		private final ChangeLog changeLog;
+		private final String userId;
+		private final SseEventSink sink;
+		private final Sse sse;
+		private long lastSequence = Long.MAX_VALUE;
+		private volatile ScheduledFuture<?> heartbeat;
+		private volatile boolean closed;
+
+		ChangeStream(ChangeLog changeLog, String userId, SseEventSink sink, Sse sse) {
+			this.changeLog = changeLog;
+			this.userId = userId;
+			this.sink = sink;
+			this.sse = sse;
+		}
+
+		synchronized void start(String since) {
+			ChangesPage page;
+			do {
+				page = changeLog.getChanges(userId, since, MAX_RESULTS);
+				if (page.isReset()) {
+					send(sse.newEventBuilder().id(page.getToken()).name(RESET_EVENT).data("").build());
+				}
+				for (ChangeEvent event : page.getChanges()) {
+					send(event);
+				}
+				since = page.getToken();
+			} while (page.isMore());
+			lastSequence = changeLog.parseToken(since);
+			heartbeat = getHeartbeatExecutor().scheduleWithFixedDelay(new Runnable() {
+				@Override
+				public void run() {
+					sendHeartbeat();
+				}
+			}, HEARTBEAT_INTERVAL_SECONDS, HEARTBEAT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+			if (closed) {
+				// closed while sending the previous changes
+				heartbeat.cancel(false);
+			}
+		}
+
+		synchronized void sendHeartbeat() {
+			if (sink.isClosed()) {
+				close();
+				return;
+			}
+			send(sse.newEventBuilder().comment("heartbeat").build());
+		}
+
+		@Override
+		public synchronized void changeRecorded(ChangeEvent event) {
+			if (sink.isClosed()) {
+				close();
+				return;
+			}
+			if (event.getSequence() > lastSequence && ChangeLog.isVisible(event, userId)) {
+				lastSequence = event.getSequence();
+				send(event);
+			}
+		}
+
+		private void send(ChangeEvent event) {
+			send(sse.newEventBuilder().id(event.getToken()).name(CHANGE_EVENT).mediaType(MediaType.APPLICATION_JSON_TYPE)
+					.data(ChangeEvent.class, event).build());
+		}
+
+		private void send(OutboundSseEvent event) {
+			CompletionStage<?> result;
+			try {
+				result = sink.send(event);
+			} catch (IllegalStateException exc) {
+				// the sink was closed
+				close();
+				return;
+			}
+			result.whenComplete(new BiConsumer<Object, Throwable>() {
+				@Override
+				public void accept(Object value, Throwable error) {
+					if (error != null) {
+						close();
+					}
+				}
+			});
+		}
+
+		/**
+		 * Stops sending changes and heartbeats, not synchronized as it's called from the callbacks of sent events.
+		 */
+		private void close() {
+			closed = true;
+			changeLog.removeListener(this);
+			ScheduledFuture<?> task = heartbeat;
+			if (task != null) {
+				task.cancel(false);
+			}
+			try {
+				sink.close();
+			} catch (RuntimeException exc) {
+				// already closed
+			}
+		}
+	}
+}
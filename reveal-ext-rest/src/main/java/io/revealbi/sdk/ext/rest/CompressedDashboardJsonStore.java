@@ -0,0 +1,302 @@
+package io.revealbi.sdk.ext.rest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Disk cache of the JSON documents returned by {@link DashboardsResource#getDashboardJsonResponse(String, String, javax.ws.rs.core.Request)}
+ * already compressed, so documents are compressed once per dashboard version instead of on every request.
+ * Compressed documents are stored in the cache directory, in a subdirectory for each user and dashboard, and named after
+ * the version of the dashboard they were created from, so they're never served for a different version. When a new version
+ * is stored, the files for previous versions are deleted.
+ * The total size of the stored files is limited to {@value #DEFAULT_MAX_SIZE} bytes by default (see {@link #setMaxSize(long)}),
+ * the least recently used files are deleted when the limit is exceeded. Files stored by previous executions are added
+ * when the first document is stored, as the oldest ones.
+ * Disabled by default, enable it by setting an instance with {@link #setInstance(CompressedDashboardJsonStore)}.
+ */
+public class CompressedDashboardJsonStore {
+	private static Logger log = Logger.getLogger(CompressedDashboardJsonStore.class.getSimpleName());
+
+	public static final String GZIP = "gzip";
+	public static final String DEFLATE = "deflate";
+	public static final long DEFAULT_MAX_SIZE = 256 * 1024 * 1024;
+
+	private static volatile CompressedDashboardJsonStore instance;
+
+	private final File cacheDir;
+	private volatile boolean deflateEnabled;
+	// sizes of the stored files, in access order
+	private final LinkedHashMap<File, Long> files = new LinkedHashMap<File, Long>(16, 0.75f, true);
+	private long size;
+	private long maxSize = DEFAULT_MAX_SIZE;
+	private boolean existingFilesLoaded;
+
+	/**
+	 * Creates a new store.
+	 * @param cacheDir The directory used to store compressed documents, it's created if it doesn't exist.
+	 */
+	public CompressedDashboardJsonStore(File cacheDir) {
+		this.cacheDir = cacheDir;
+	}
+
+	/**
+	 * Sets the store used by the dashboards resource.
+	 * @param instance The store to use, or null to disable compressed documents.
+	 */
+	public static void setInstance(CompressedDashboardJsonStore instance) {
+		CompressedDashboardJsonStore.instance = instance;
+	}
+
+	/**
+	 * Returns the store used by the dashboards resource, null if not enabled.
+	 */
+	public static CompressedDashboardJsonStore getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Enables or disables the "deflate" encoding, only "gzip" is enabled by default as it's supported by all clients.
+	 */
+	public void setDeflateEnabled(boolean deflateEnabled) {
+		this.deflateEnabled = deflateEnabled;
+	}
+
+	/**
+	 * Sets the maximum total size in bytes of the stored files, the least recently used files are deleted when exceeded.
+	 */
+	public void setMaxSize(long maxSize) {
+		synchronized (files) {
+			this.maxSize = maxSize;
+			evict();
+		}
+	}
+
+	/**
+	 * Selects the encoding to use for the given "Accept-Encoding" header, preferring "gzip".
+	 * @return The selected encoding, or null if no supported encoding is accepted by the client.
+	 */
+	public String selectEncoding(String acceptEncoding) {
+		if (acceptEncoding == null) {
+			return null;
+		}
+		// null when not listed, in which case the quality of "*" is used
+		Double gzip = null;
+		Double deflate = null;
+		double any = 0;
+		for (String item : acceptEncoding.split(",")) {
+			String[] parts = item.split(";");
+			String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+			double quality = getQuality(parts);
+			if (coding.equals(GZIP) || coding.equals("x-gzip")) {
+				gzip = quality;
+			} else if (coding.equals(DEFLATE)) {
+				deflate = quality;
+			} else if (coding.equals("*")) {
+				any = quality;
+			}
+		}
+		double gzipQuality = gzip != null ? gzip : any;
+		double deflateQuality = deflateEnabled ? (deflate != null ? deflate : any) : 0;
+		if (gzipQuality > 0 && gzipQuality >= deflateQuality) {
+			return GZIP;
+		}
+		return deflateQuality > 0 ? DEFLATE : null;
+	}
+
+	/**
+	 * Opens the compressed document for the given dashboard version, the stream is opened before returning it so it can 
+	 * be read even if the file is deleted by a new version being stored.
+	 * @return The stream to read the compressed document, or null if not stored yet or it can't be opened.
+	 */
+	public InputStream open(String userId, String dashboardId, String version, String encoding) {
+		File file = getFile(userId, dashboardId, version, encoding);
+		InputStream in;
+		try {
+			in = new FileInputStream(file);
+		} catch (FileNotFoundException exc) {
+			return null;
+		}
+		synchronized (files) {
+			// marks it as recently used
+			files.get(file);
+		}
+		return in;
+	}
+
+	/**
+	 * Compresses the given document and stores it for the given dashboard version, deleting the files for previous versions.
+	 * If the document can't be stored, it's still returned compressed.
+	 * @return The compressed document.
+	 */
+	public byte[] put(String userId, String dashboardId, String version, String encoding, byte[] json) throws IOException {
+		byte[] compressed = compress(json, encoding);
+		File file = getFile(userId, dashboardId, version, encoding);
+		File dir = file.getParentFile();
+		try {
+			dir.mkdirs();
+			File tmpFile = File.createTempFile("tmp-", null, dir);
+			try {
+				Files.write(tmpFile.toPath(), compressed);
+				Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} finally {
+				Files.deleteIfExists(tmpFile.toPath());
+			}
+			deleteOtherVersions(dir, file.getName().substring(0, file.getName().indexOf('.')));
+			added(file, compressed.length);
+		} catch (IOException exc) {
+			log.log(Level.WARNING, "Failed to store compressed document for dashboard " + dashboardId, exc);
+		}
+		return compressed;
+	}
+
+	/**
+	 * Deletes the compressed documents for all versions of the given dashboard.
+	 */
+	public void remove(String userId, String dashboardId) {
+		File dir = getDashboardDir(userId, dashboardId);
+		File[] files = dir.listFiles();
+		if (files == null) {
+			return;
+		}
+		for (File file : files) {
+			delete(file);
+		}
+		dir.delete();
+	}
+
+	private void deleteOtherVersions(File dir, String versionHash) {
+		File[] files = dir.listFiles();
+		if (files == null) {
+			return;
+		}
+		for (File file : files) {
+			// temporary files are being written by other requests
+			if (!file.getName().startsWith(versionHash + ".") && !file.getName().startsWith("tmp-")) {
+				delete(file);
+			}
+		}
+	}
+
+	private void delete(File file) {
+		synchronized (files) {
+			Long fileSize = files.remove(file);
+			if (fileSize != null) {
+				size -= fileSize;
+			}
+		}
+		file.delete();
+	}
+
+	private void added(File file, long fileSize) {
+		synchronized (files) {
+			if (!existingFilesLoaded) {
+				existingFilesLoaded = true;
+				loadExistingFiles();
+			}
+			Long previousSize = files.put(file, fileSize);
+			size += fileSize - (previousSize != null ? previousSize : 0);
+			evict();
+		}
+	}
+
+	private void evict() {
+		Iterator<Map.Entry<File, Long>> it = files.entrySet().iterator();
+		while (size > maxSize && it.hasNext()) {
+			Map.Entry<File, Long> eldest = it.next();
+			it.remove();
+			size -= eldest.getValue();
+			// a stream already opened for it is still readable
+			eldest.getKey().delete();
+		}
+	}
+
+	/**
+	 * Adds the files stored by previous executions, in the two levels of directories used by {@link #getDashboardDir(String, String)}.
+	 */
+	private void loadExistingFiles() {
+		File[] hashDirs = cacheDir.listFiles();
+		if (hashDirs == null) {
+			return;
+		}
+		for (File hashDir : hashDirs) {
+			File[] dashboardDirs = hashDir.listFiles();
+			if (dashboardDirs == null) {
+				continue;
+			}
+			for (File dashboardDir : dashboardDirs) {
+				File[] dashboardFiles = dashboardDir.listFiles();
+				if (dashboardFiles == null) {
+					continue;
+				}
+				for (File file : dashboardFiles) {
+					if (file.isFile() && !file.getName().startsWith("tmp-") && !files.containsKey(file)) {
+						files.put(file, file.length());
+						size += file.length();
+					}
+				}
+			}
+		}
+	}
+
+	private File getFile(String userId, String dashboardId, String version, String encoding) {
+		return new File(getDashboardDir(userId, dashboardId), getHash(version).substring(0, 32) + ".json." + encoding);
+	}
+
+	private File getDashboardDir(String userId, String dashboardId) {
+		String hash = getHash(userId == null ? dashboardId : userId + '\0' + dashboardId);
+		return new File(new File(cacheDir, hash.substring(0, 2)), hash);
+	}
+
+	private static byte[] compress(byte[] json, String encoding) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4);
+		try (OutputStream compressed = GZIP.equals(encoding) ? new GZIPOutputStream(out) : new DeflaterOutputStream(out)) {
+			compressed.write(json);
+		}
+		return out.toByteArray();
+	}
+
+	private static double getQuality(String[] parts) {
+		for (int i = 1; i < parts.length; i++) {
+			String param = parts[i].trim();
+			if (param.startsWith("q=")) {
+				try {
+					return Double.parseDouble(param.substring(2).trim());
+				} catch (NumberFormatException exc) {
+					return 0;
+				}
+			}
+		}
+		return 1;
+	}
+
+	private static String getHash(String value) {
+		try {
+			byte[] hash = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+			StringBuilder sb = new StringBuilder();
+			for (byte b : hash) {
+				sb.append(String.format("%02x", b));
+			}
+			return sb.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
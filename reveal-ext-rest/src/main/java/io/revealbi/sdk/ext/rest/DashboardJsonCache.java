@@ -0,0 +1,121 @@
+package io.revealbi.sdk.ext.rest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import javax.json.bind.Jsonb;
+import javax.json.bind.JsonbBuilder;
+
+import io.revealbi.sdk.ext.base.ByteBoundedCache;
+
+/**
+ * Cache of the JSON documents returned by {@link DashboardsResource#getDashboardJsonResponse(String, String, javax.ws.rs.core.Request)},
+ * so the ".rdash" file is not extracted and parsed again each time a dashboard is opened.
+ * Documents are cached already serialized, keyed by user and dashboard id, and they're returned only for the same
+ * version of the dashboard they were created from (see {@link io.revealbi.sdk.ext.api.IDashboardRepository#getDashboardVersion(com.infragistics.reveal.sdk.api.IRVUserContext, String)}),
+ * dashboards whose repository doesn't return a version are never cached.
+ * The cache is bounded by the size of the serialized documents and uses {@link ByteBoundedCache}, by default up to
+ * {@value #DEFAULT_MAX_BYTES} bytes are used, it can be changed using {@link #setMaxBytes(long)} on the current instance.
+ */
+public class DashboardJsonCache {
+	public static final long DEFAULT_MAX_BYTES = 64 * 1024 * 1024;
+
+	// Jsonb instances are thread safe, and creating one is expensive as the provider is looked up each time
+	private static final Jsonb jsonb = JsonbBuilder.create();
+
+	private static DashboardJsonCache instance = new DashboardJsonCache(DEFAULT_MAX_BYTES);
+
+	private final ByteBoundedCache<String, Entry> cache;
+
+	/**
+	 * Creates a new cache.
+	 * @param maxBytes The maximum size of all cached documents, zero disables the cache.
+	 */
+	public DashboardJsonCache(long maxBytes) {
+		cache = new ByteBoundedCache<String, Entry>(maxBytes);
+	}
+
+	/**
+	 * Changes the current cache to the specified instance
+	 * @param instance Required object, use {@code new DashboardJsonCache(0)} to disable caching.
+	 * @throws NullPointerException if the parameter is {@code null}.
+	 */
+	public static void setInstance(DashboardJsonCache instance) throws NullPointerException {
+		if (instance == null) {
+			throw new NullPointerException();
+		}
+		DashboardJsonCache.instance = instance;
+	}
+
+	public static DashboardJsonCache getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Returns the serialized JSON document for the given dashboard, only if it was cached for the given version.
+	 */
+	public byte[] get(String userId, String dashboardId, String version) {
+		if (version == null) {
+			return null;
+		}
+		String key = getKey(userId, dashboardId);
+		Entry entry = cache.get(key);
+		if (entry == null) {
+			return null;
+		}
+		if (!entry.version.equals(version)) {
+			cache.remove(key);
+			return null;
+		}
+		return entry.json;
+	}
+
+	/**
+	 * Serializes the given document and adds it to the cache.
+	 * @return The serialized document, to be returned to the client.
+	 */
+	public byte[] put(String userId, String dashboardId, String version, Map<String, Object> document) {
+		byte[] json = serialize(document);
+		if (version != null) {
+			cache.put(getKey(userId, dashboardId), new Entry(version, json), json.length);
+		}
+		return json;
+	}
+
+	public void remove(String userId, String dashboardId) {
+		cache.remove(getKey(userId, dashboardId));
+	}
+
+	public void clear() {
+		cache.clear();
+	}
+
+	public void setMaxBytes(long maxBytes) {
+		cache.setMaxBytes(maxBytes);
+	}
+
+	/**
+	 * Returns the underlying cache, mostly useful to get hit/miss statistics.
+	 */
+	public ByteBoundedCache<String, ?> getCache() {
+		return cache;
+	}
+
+	private static byte[] serialize(Map<String, Object> document) {
+		return jsonb.toJson(document).getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static String getKey(String userId, String dashboardId) {
+		return userId == null ? dashboardId : userId + '\0' + dashboardId;
+	}
+
+	private static class Entry {
+		final String version;
+		final byte[] json;
+
+		Entry(String version, byte[] json) {
+			this.version = version;
+			this.json = json;
+		}
+	}
+}
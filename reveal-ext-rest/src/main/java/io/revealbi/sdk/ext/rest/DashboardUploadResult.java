@@ -0,0 +1,63 @@
+package io.revealbi.sdk.ext.rest;
+
+/**
+ * Result for each file received by {@link DashboardsUploadResource#uploadDashboardsStream(String, java.io.InputStream)}.
+ */
+public class DashboardUploadResult {
+	public enum Status {
+		/** The dashboard was saved, with the id returned in the result */
+		SAVED,
+		/** The dashboard was larger than the maximum size allowed for each file */
+		TOO_LARGE,
+		/** The upload exceeded the maximum size allowed for all files, this file and the ones after it were not processed */
+		TOTAL_SIZE_EXCEEDED,
+		/** The dashboard couldn't be saved, a generic error message is included in the result and the cause is logged */
+		FAILED
+	}
+
+	private String fileName;
+	private String dashboardId;
+	private Status status;
+	private String error;
+
+	public DashboardUploadResult() {
+	}
+
+	public DashboardUploadResult(String fileName, String dashboardId, Status status) {
+		this.fileName = fileName;
+		this.dashboardId = dashboardId;
+		this.status = status;
+	}
+
+	public String getFileName() {
+		return fileName;
+	}
+
+	public void setFileName(String fileName) {
+		this.fileName = fileName;
+	}
+
+	public String getDashboardId() {
+		return dashboardId;
+	}
+
+	public void setDashboardId(String dashboardId) {
+		this.dashboardId = dashboardId;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	public void setStatus(Status status) {
+		this.status = status;
+	}
+
+	public String getError() {
+		return error;
+	}
+
+	public void setError(String error) {
+		this.error = error;
+	}
+}
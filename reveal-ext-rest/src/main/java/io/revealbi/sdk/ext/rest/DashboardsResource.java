@@ -1,71 +1,275 @@
 package io.revealbi.sdk.ext.rest;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
+import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.PATCH;
 import javax.ws.rs.Path;
+import javax.ws.rs.POST;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.CacheControl;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
 import javax.ws.rs.core.StreamingOutput;
 
+import com.infragistics.reveal.sdk.api.IRVUserContext;
 import com.infragistics.reveal.sdk.api.model.RVDashboardDocument;
 import com.infragistics.reveal.sdk.util.RVSerializationUtilities;
 
+import io.revealbi.sdk.ext.api.AuthorizationProviderFactory;
 import io.revealbi.sdk.ext.api.DashboardInfo;
+import io.revealbi.sdk.ext.api.DashboardPatch;
 import io.revealbi.sdk.ext.api.DashboardRepositoryFactory;
+import io.revealbi.sdk.ext.api.DashboardSortKey;
+import io.revealbi.sdk.ext.api.DashboardVersionMismatchException;
+import io.revealbi.sdk.ext.api.DashboardsPage;
 import io.revealbi.sdk.ext.api.IAuthorizationProvider;
+import io.revealbi.sdk.ext.api.IDashboardConsumer;
 import io.revealbi.sdk.ext.api.IDashboardRepository;
 
 @Path("/dashboards")
 public class DashboardsResource extends BaseResource {	
+	private static final int DEFAULT_PAGE_SIZE = 50;
+	private static final int MAX_PAGE_SIZE = 1000;
+	private static final String RANGE_HEADER = "Range";
+	private static final String CONTENT_RANGE_HEADER = "Content-Range";
+	private static final String ACCEPT_RANGES_HEADER = "Accept-Ranges";
+	private static final String IF_RANGE_HEADER = "If-Range";
+	private static final String ZIP_MEDIA_TYPE = "application/zip";
 	
 	protected IDashboardRepository getDashboardRepository() {
 		return DashboardRepositoryFactory.getInstance();
 	}
-	@GET
-	@Produces(MediaType.APPLICATION_JSON)
+	
 	public DashboardInfo[] getDashboards() throws IOException {
 		checkDashboardsPermission(IAuthorizationProvider.DashboardsActionType.LIST);
 		
 		return getDashboardRepository().getUserDashboards(getUserContext());
 	}
 	
+	/**
+	 * Returns the list of dashboards from {@link #getDashboards()}, with the "ETag" header and "304 Not Modified" if 
+	 * the list didn't change since the version in the "If-None-Match" header.
+	 */
+	@GET
+	@Produces(MediaType.APPLICATION_JSON)
+	public Response getDashboardsResponse(@Context Request request) throws IOException {
+		checkDashboardsPermission(IAuthorizationProvider.DashboardsActionType.LIST);
+		
+		EntityTag etag = getEntityTag(getDashboardRepository().getUserDashboardsVersion(getUserContext()));
+		ResponseBuilder notModified = evaluatePreconditions(request, etag, null);
+		if (notModified != null) {
+			return notModified.cacheControl(getCacheControl()).build();
+		}
+		return addValidators(Response.ok(getDashboards()), etag, null).build();
+	}
+	
+	@GET
+	@Produces(MediaType.APPLICATION_JSON)
+	@Path("/page")
+	public DashboardsPage getDashboardsPage(@QueryParam("sort") @DefaultValue("title") String sort, @QueryParam("desc") boolean descending, 
+			@QueryParam("cursor") String cursor, @QueryParam("size") @DefaultValue("" + DEFAULT_PAGE_SIZE) int pageSize) throws IOException {
+		checkDashboardsPermission(IAuthorizationProvider.DashboardsActionType.LIST);
+		
+		if (pageSize <= 0 || pageSize > MAX_PAGE_SIZE) {
+			throw new WebApplicationException(Response.Status.BAD_REQUEST);
+		}
+		try {
+			//parsed here instead of binding the enum so an unknown sort key returns 400 instead of 404
+			DashboardSortKey sortKey = DashboardSortKey.fromString(sort);
+			return getDashboardRepository().getUserDashboards(getUserContext(), sortKey, descending, cursor, pageSize);
+		} catch (IllegalArgumentException exc) {
+			throw new WebApplicationException(exc.getMessage(), Response.Status.BAD_REQUEST);
+		}
+	}
+	
+	@GET
+	@Produces(MediaType.APPLICATION_JSON)
+	@Path("/search")
+	public DashboardInfo[] searchDashboards(@QueryParam("q") String query, @QueryParam("limit") @DefaultValue("" + DEFAULT_PAGE_SIZE) int maxResults) throws IOException {
+		checkDashboardsPermission(IAuthorizationProvider.DashboardsActionType.LIST);
+		
+		if (query == null || maxResults <= 0 || maxResults > MAX_PAGE_SIZE) {
+			throw new WebApplicationException(Response.Status.BAD_REQUEST);
+		}
+		return getDashboardRepository().searchUserDashboards(getUserContext(), query, maxResults);
+	}
+	
 	@DELETE	
 	@Path("/{dashboardId}")
 	public void deleteDashboard(@PathParam("dashboardId") String dashboardId) throws IOException {
 		checkDashboardPermission(dashboardId, IAuthorizationProvider.DashboardActionType.DELETE);
 		
 		getDashboardRepository().deleteDashboard(getUserContext(), dashboardId);
+		removeCachedJson(getUserContext().getUserId(), dashboardId);
 	}
 	
-	@GET
-	@Produces(MediaType.APPLICATION_JSON)
+	/**
+	 * Applies a patch to the dashboard document, as a JSON merge patch (RFC 7386) or a JSON patch (RFC 6902) depending on
+	 * the content type. If the "If-Match" header is included the dashboard is patched only if the version matches, checked
+	 * again by the repository while patching it, returning 412 if it doesn't match.
+	 * Returns 400 if the patch is not valid and 409 if it can't be applied to the current document.
+	 */
+	@PATCH
 	@Path("/{dashboardId}")
-	public Map<String, Object> getDashboardJson(@PathParam("dashboardId") String dashboardId) throws IOException {
+	@Consumes({ DashboardPatch.MERGE_PATCH_MEDIA_TYPE, DashboardPatch.JSON_PATCH_MEDIA_TYPE })
+	public Response patchDashboard(@PathParam("dashboardId") String dashboardId, @HeaderParam(HttpHeaders.CONTENT_TYPE) String contentType, 
+			@HeaderParam(HttpHeaders.IF_MATCH) String ifMatch, @Context Request request, String body) throws IOException {
+		checkDashboardPermission(dashboardId, IAuthorizationProvider.DashboardActionType.WRITE);
+		
+		IRVUserContext userContext = getUserContext();
+		IDashboardRepository repository = getDashboardRepository();
+		String version = repository.getDashboardVersion(userContext, dashboardId);
+		EntityTag etag = getEntityTag(version);
+		String expectedVersion = null;
+		if (etag != null) {
+			ResponseBuilder preconditionFailed = request.evaluatePreconditions(etag);
+			if (preconditionFailed != null) {
+				return preconditionFailed.build();
+			}
+			// the version matched, the repository checks it didn't change before patching ("*" matches any version)
+			if (ifMatch != null && !ifMatch.trim().equals("*")) {
+				expectedVersion = version;
+			}
+		}
+		boolean patched;
+		try {
+			MediaType mediaType = MediaType.valueOf(contentType);
+			DashboardPatch patch = DashboardPatch.parse(mediaType.getType() + "/" + mediaType.getSubtype(), body);
+			patched = repository.patchDashboard(userContext, dashboardId, patch, expectedVersion);
+		} catch (IllegalArgumentException exc) {
+			throw new WebApplicationException(exc, Response.Status.BAD_REQUEST);
+		} catch (DashboardVersionMismatchException exc) {
+			throw new WebApplicationException(exc, Response.Status.PRECONDITION_FAILED);
+		} catch (IllegalStateException exc) {
+			throw new WebApplicationException(exc, Response.Status.CONFLICT);
+		}
+		if (!patched) {
+			throw new WebApplicationException(Response.Status.NOT_FOUND);
+		}
+		removeCachedJson(userContext.getUserId(), dashboardId);
+		ResponseBuilder builder = Response.noContent();
+		EntityTag newEtag = getEntityTag(repository.getDashboardVersion(userContext, dashboardId));
+		if (newEtag != null) {
+			builder.tag(newEtag);
+		}
+		return builder.build();
+	}
+	
+	/**
+	 * Removes the cached JSON documents (including compressed ones) for a modified or deleted dashboard.
+	 */
+	static void removeCachedJson(String userId, String dashboardId) {
+		DashboardJsonCache.getInstance().remove(userId, dashboardId);
+		CompressedDashboardJsonStore compressedStore = CompressedDashboardJsonStore.getInstance();
+		if (compressedStore != null) {
+			compressedStore.remove(userId, dashboardId);
+		}
+	}
+	
+	public Map<String, Object> getDashboardJson(String dashboardId) throws IOException {
 		checkDashboardPermission(dashboardId, IAuthorizationProvider.DashboardActionType.READ);
 		
 		InputStream rdashStream = getDashboardRepository().getDashboard(getUserContext(), dashboardId);
 		if (rdashStream != null) {
-			RVDashboardDocument doc = RVSerializationUtilities.getDashboardDocument(rdashStream);
+			RVDashboardDocument doc;
+			try (InputStream in = rdashStream) {
+				doc = RVSerializationUtilities.getDashboardDocument(in);
+			}
 			if (doc != null) {
 				return doc.toJson();
 			}
 		}
 		throw new WebApplicationException(Response.Status.NOT_FOUND);
 	}
-
+	
+	/**
+	 * Returns the dashboard document from {@link #getDashboardJson(String)}, with the "ETag" and "Last-Modified" headers, 
+	 * "304 Not Modified" if the dashboard didn't change, and compressed if enabled (see {@link CompressedDashboardJsonStore}).
+	 */
 	@GET
-	@Produces(MediaType.APPLICATION_OCTET_STREAM)
-	@Path("/export/{dashboardId}")
-	public Response getDashboard(@PathParam("dashboardId") String dashboardId) throws IOException {
+	@Produces(MediaType.APPLICATION_JSON)
+	@Path("/{dashboardId}")
+	public Response getDashboardJsonResponse(@PathParam("dashboardId") String dashboardId, @HeaderParam(HttpHeaders.ACCEPT_ENCODING) String acceptEncoding, 
+			@Context Request request) throws IOException {
+		checkDashboardPermission(dashboardId, IAuthorizationProvider.DashboardActionType.READ);
+		
+		IRVUserContext userContext = getUserContext();
+		String version = getDashboardRepository().getDashboardVersion(userContext, dashboardId);
+		// compressed documents are stored per version, so they're used only when the version is known
+		CompressedDashboardJsonStore compressedStore = version == null ? null : CompressedDashboardJsonStore.getInstance();
+		String encoding = compressedStore == null ? null : compressedStore.selectEncoding(acceptEncoding);
+		// each encoding is a different representation, with its own entity tag
+		EntityTag etag = getEntityTag(encoding == null ? version : version + "-" + encoding);
+		Date lastModified = getDate(getDashboardRepository().getDashboardLastModified(userContext, dashboardId));
+		ResponseBuilder notModified = evaluatePreconditions(request, etag, lastModified);
+		if (notModified != null) {
+			return addVary(notModified.cacheControl(getCacheControl())).build();
+		}
+		if (encoding != null) {
+			// compressed again below if not stored or it can't be opened
+			InputStream compressed = compressedStore.open(userContext.getUserId(), dashboardId, version, encoding);
+			if (compressed != null) {
+				return getCompressedJsonResponse(compressed, encoding, etag, lastModified);
+			}
+		}
+		DashboardJsonCache cache = DashboardJsonCache.getInstance();
+		byte[] json = cache.get(userContext.getUserId(), dashboardId, version);
+		if (json == null) {
+			json = cache.put(userContext.getUserId(), dashboardId, version, getDashboardJson(dashboardId));
+		}
+		if (encoding != null) {
+			byte[] compressed = compressedStore.put(userContext.getUserId(), dashboardId, version, encoding, json);
+			return getCompressedJsonResponse(compressed, encoding, etag, lastModified);
+		}
+		return addVary(addValidators(Response.ok(json, MediaType.APPLICATION_JSON), etag, lastModified)).build();
+	}
+	
+	private static Response getCompressedJsonResponse(Object entity, String encoding, EntityTag etag, Date lastModified) {
+		ResponseBuilder builder = Response.ok(entity, MediaType.APPLICATION_JSON).header(HttpHeaders.CONTENT_ENCODING, encoding);
+		return addVary(addValidators(builder, etag, lastModified)).build();
+	}
+	
+	/**
+	 * Adds the "Vary" header when compressed documents are enabled, as the response then depends on the "Accept-Encoding" header.
+	 */
+	private static ResponseBuilder addVary(ResponseBuilder builder) {
+		if (CompressedDashboardJsonStore.getInstance() != null) {
+			builder.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+		}
+		return builder;
+	}
+
+	public Response getDashboard(String dashboardId) throws IOException {
 		checkDashboardPermission(dashboardId, IAuthorizationProvider.DashboardActionType.READ);
 		
 		final InputStream rdashStream = getDashboardRepository().getDashboard(getUserContext(), dashboardId);
@@ -73,7 +277,9 @@ public class DashboardsResource extends BaseResource {
 			StreamingOutput output = new StreamingOutput() {				
 				@Override
 				public void write(OutputStream output) throws IOException, WebApplicationException {
-					RVSerializationUtilities.copyStream(rdashStream, output);
+					try (InputStream in = rdashStream) {
+						RVSerializationUtilities.copyStream(in, output);
+					}
 				}
 			};
 			return Response.
@@ -82,8 +288,309 @@ public class DashboardsResource extends BaseResource {
 					build();
 		}
 		throw new WebApplicationException(Response.Status.NOT_FOUND);
+	}
+	
+	/**
+	 * Exports the dashboard with the "ETag" and "Last-Modified" headers, supporting "Range" requests when the repository 
+	 * stores dashboards as files, and using {@link #getDashboard(String)} otherwise.
+	 */
+	@GET
+	@Produces(MediaType.APPLICATION_OCTET_STREAM)
+	@Path("/export/{dashboardId}")
+	public Response getDashboardResponse(@PathParam("dashboardId") String dashboardId, @HeaderParam(RANGE_HEADER) String range, 
+			@HeaderParam(IF_RANGE_HEADER) String ifRange, @Context Request request) throws IOException {
+		checkDashboardPermission(dashboardId, IAuthorizationProvider.DashboardActionType.READ);
+		
+		IRVUserContext userContext = getUserContext();
+		EntityTag etag = getEntityTag(getDashboardRepository().getDashboardVersion(userContext, dashboardId));
+		Date lastModified = getDate(getDashboardRepository().getDashboardLastModified(userContext, dashboardId));
+		ResponseBuilder notModified = evaluatePreconditions(request, etag, lastModified);
+		if (notModified != null) {
+			return notModified.cacheControl(getCacheControl()).build();
+		}
+		File file = getDashboardRepository().getDashboardFile(userContext, dashboardId);
+		if (file != null) {
+			if (ifRange != null && (etag == null || !ifRange.trim().equals(etag.toString()))) {
+				// the range is valid only for the version specified in If-Range, return the whole content otherwise
+				range = null;
+			}
+			return addValidators(getDashboardFileResponse(dashboardId, file, range), etag, lastModified).build();
+		}
+		return addValidators(Response.fromResponse(getDashboard(dashboardId)), etag, lastModified).build();
 	}	
 	
+	/**
+	 * Exports the given dashboards, or all dashboards for the current user if no id is specified, as a single ZIP file
+	 * with an entry for each dashboard named "{dashboardId}.rdash".
+	 * The ZIP file is streamed as it's written, reading each dashboard from the repository only when its entry is written.
+	 * If ids are specified and the user doesn't have permission to read one of them, the request fails with "403 Forbidden", 
+	 * when exporting all dashboards the ones the user can't read are skipped. Dashboards not found are skipped too.
+	 */
+	@GET
+	@Produces(ZIP_MEDIA_TYPE)
+	@Path("/export")
+	public Response exportDashboards(@QueryParam("ids") List<String> ids) throws IOException {
+		return getDashboardsZipResponse(ids);
+	}
+	
+	/**
+	 * Same as {@link #exportDashboards(List)}, but receiving the list of ids as a JSON array in the body of the request, 
+	 * to be used when the list is too long for the URL.
+	 */
+	@POST
+	@Consumes(MediaType.APPLICATION_JSON)
+	@Produces(ZIP_MEDIA_TYPE)
+	@Path("/export")
+	public Response exportDashboardsList(List<String> ids) throws IOException {
+		return getDashboardsZipResponse(ids);
+	}
+	
+	private Response getDashboardsZipResponse(List<String> ids) throws IOException {
+		// resolved here, as the request context is not usable once the response is being streamed
+		final IRVUserContext userContext = getUserContext();
+		final IDashboardRepository repository = getDashboardRepository();
+		IAuthorizationProvider authorization = AuthorizationProviderFactory.getInstance();
+		final List<String> dashboardIds = new ArrayList<String>();
+		if (ids == null || ids.isEmpty()) {
+			checkDashboardsPermission(IAuthorizationProvider.DashboardsActionType.LIST);
+			String[] allIds = repository.getDashboardIdList(userContext);
+			if (allIds != null) {
+				for (String id : allIds) {
+					if (authorization.hasDashboardPermission(userContext, id, IAuthorizationProvider.DashboardActionType.READ)) {
+						dashboardIds.add(id);
+					}
+				}
+			}
+		} else {
+			for (String id : new LinkedHashSet<String>(ids)) {
+				checkDashboardPermission(id, IAuthorizationProvider.DashboardActionType.READ);
+				dashboardIds.add(id);
+			}
+		}
+		StreamingOutput output = new StreamingOutput() {
+			@Override
+			public void write(OutputStream output) throws IOException, WebApplicationException {
+				ZipOutputStream zip = new ZipOutputStream(output);
+				// rdash files are already compressed
+				zip.setLevel(Deflater.NO_COMPRESSION);
+				repository.getDashboards(userContext, dashboardIds, new IDashboardConsumer() {
+					@Override
+					public void accept(String dashboardId, InputStream dashboardStream) throws IOException {
+						zip.putNextEntry(new ZipEntry(dashboardId + ".rdash"));
+						RVSerializationUtilities.copyStream(dashboardStream, zip);
+						zip.closeEntry();
+					}
+				});
+				zip.finish();
+				zip.flush();
+			}
+		};
+		return Response.
+				ok(output, ZIP_MEDIA_TYPE).
+				header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=dashboards.zip").
+				build();
+	}
+	
+	/**
+	 * Checks which of the given dashboards exist, dashboards the user can't read are reported as not existing.
+	 * @param ids The ids of the dashboards to check, as a JSON array.
+	 * @return A JSON object with a boolean attribute for each dashboard id.
+	 */
+	@POST
+	@Consumes(MediaType.APPLICATION_JSON)
+	@Produces(MediaType.APPLICATION_JSON)
+	@Path("/batch/exists")
+	public Map<String, Boolean> dashboardsExist(List<String> ids) throws IOException {
+		IRVUserContext userContext = getUserContext();
+		List<String> readableIds = getAuthorizedIds(userContext, ids, IAuthorizationProvider.DashboardActionType.READ);
+		Map<String, Boolean> existing = getDashboardRepository().exists(userContext, readableIds);
+		Map<String, Boolean> result = new LinkedHashMap<String, Boolean>();
+		for (String id : ids) {
+			result.put(id, Boolean.TRUE.equals(existing.get(id)));
+		}
+		return result;
+	}
+	
+	/**
+	 * Returns the summary of the given dashboards, dashboards not found or the user can't read are skipped.
+	 * @param ids The ids of the dashboards, as a JSON array.
+	 */
+	@POST
+	@Consumes(MediaType.APPLICATION_JSON)
+	@Produces(MediaType.APPLICATION_JSON)
+	@Path("/batch/summaries")
+	public DashboardInfo[] getDashboardSummaries(List<String> ids) throws IOException {
+		IRVUserContext userContext = getUserContext();
+		return getDashboardRepository().getDashboardInfos(userContext, getAuthorizedIds(userContext, ids, IAuthorizationProvider.DashboardActionType.READ));
+	}
+	
+	/**
+	 * Deletes the given dashboards, if the user doesn't have permission to delete one of them no dashboard is deleted
+	 * and the request fails with "403 Forbidden".
+	 * @param ids The ids of the dashboards, as a JSON array.
+	 */
+	@POST
+	@Consumes(MediaType.APPLICATION_JSON)
+	@Path("/batch/delete")
+	public void deleteDashboards(List<String> ids) throws IOException {
+		if (ids == null) {
+			throw new WebApplicationException(Response.Status.BAD_REQUEST);
+		}
+		for (String id : ids) {
+			checkDashboardPermission(id, IAuthorizationProvider.DashboardActionType.DELETE);
+		}
+		IRVUserContext userContext = getUserContext();
+		getDashboardRepository().deleteDashboards(userContext, ids);
+		for (String id : ids) {
+			removeCachedJson(userContext.getUserId(), id);
+		}
+	}
+	
+	/**
+	 * Evaluates the conditional headers in the request (If-None-Match, If-Modified-Since) against the given validators.
+	 * @return A builder for a "304 Not Modified" response if the client already has the current version, null otherwise.
+	 */
+	protected ResponseBuilder evaluatePreconditions(Request request, EntityTag etag, Date lastModified) {
+		ResponseBuilder builder = null;
+		if (etag != null && lastModified != null) {
+			builder = request.evaluatePreconditions(lastModified, etag);
+		} else if (etag != null) {
+			builder = request.evaluatePreconditions(etag);
+		} else if (lastModified != null) {
+			builder = request.evaluatePreconditions(lastModified);
+		}
+		return builder;
+	}
+	
+	protected static ResponseBuilder addValidators(ResponseBuilder builder, EntityTag etag, Date lastModified) {
+		if (etag != null) {
+			builder.tag(etag);
+		}
+		if (lastModified != null) {
+			builder.lastModified(lastModified);
+		}
+		return builder.cacheControl(getCacheControl());
+	}
+	
+	protected static EntityTag getEntityTag(String version) {
+		return version == null ? null : new EntityTag(version);
+	}
+	
+	private static Date getDate(Long time) {
+		return time == null ? null : new Date(time);
+	}
+	
+	/**
+	 * Responses are private to the user and clients are expected to validate them with the server before using a cached copy.
+	 */
+	private static CacheControl getCacheControl() {
+		CacheControl cacheControl = new CacheControl();
+		cacheControl.setPrivate(true);
+		cacheControl.setNoCache(true);
+		cacheControl.setNoTransform(false);
+		return cacheControl;
+	}
+	
+	/**
+	 * Returns the content of the given file, using {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)} to 
+	 * avoid copying the content through heap buffers and supporting single range requests (like "bytes=100-").
+	 */
+	private ResponseBuilder getDashboardFileResponse(String dashboardId, File file, String range) throws IOException {
+		final FileChannel channel;
+		try {
+			channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		} catch (NoSuchFileException exc) {
+			throw new WebApplicationException(Response.Status.NOT_FOUND);
+		}
+		long length = channel.size();
+		long start = 0;
+		long end = length - 1;
+		Response.Status status = Response.Status.OK;
+		long[] byteRange = range == null ? null : parseRange(range, length);
+		if (byteRange != null) {
+			if (byteRange.length == 0) {
+				channel.close();
+				return Response.status(Response.Status.REQUESTED_RANGE_NOT_SATISFIABLE).
+						header(CONTENT_RANGE_HEADER, "bytes */" + length);
+			}
+			start = byteRange[0];
+			end = byteRange[1];
+			status = Response.Status.PARTIAL_CONTENT;
+		}
+		final long position = start;
+		final long count = end - start + 1;
+		StreamingOutput output = new StreamingOutput() {
+			@Override
+			public void write(OutputStream output) throws IOException, WebApplicationException {
+				try (FileChannel in = channel) {
+					WritableByteChannel out = Channels.newChannel(output);
+					long transferred = 0;
+					while (transferred < count) {
+						long n = in.transferTo(position + transferred, count - transferred, out);
+						if (n <= 0) {
+							break;
+						}
+						transferred += n;
+					}
+				}
+			}
+		};
+		ResponseBuilder builder = Response.status(status).
+				entity(output).
+				type(MediaType.APPLICATION_OCTET_STREAM).
+				header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + dashboardId + ".rdash").
+				header(HttpHeaders.CONTENT_LENGTH, count).
+				header(ACCEPT_RANGES_HEADER, "bytes");
+		if (status == Response.Status.PARTIAL_CONTENT) {
+			builder.header(CONTENT_RANGE_HEADER, "bytes " + start + "-" + end + "/" + length);
+		}
+		return builder;
+	}
+	
+	/**
+	 * Parses a "Range" header, only single byte ranges are supported.
+	 * @return null if the header is not supported (so the whole content is returned), an empty array if the range can't be satisfied 
+	 * or an array with the first and last positions (inclusive) if it's a valid range.
+	 */
+	private static long[] parseRange(String range, long length) {
+		range = range.trim();
+		if (!range.startsWith("bytes=") || range.indexOf(',') >= 0) {
+			return null;
+		}
+		String spec = range.substring("bytes=".length()).trim();
+		int dash = spec.indexOf('-');
+		if (dash < 0) {
+			return null;
+		}
+		try {
+			String startStr = spec.substring(0, dash).trim();
+			String endStr = spec.substring(dash + 1).trim();
+			long start;
+			long end;
+			if (startStr.isEmpty()) {
+				// suffix range: last N bytes
+				long suffix = Long.parseLong(endStr);
+				if (suffix <= 0) {
+					return new long[0];
+				}
+				start = Math.max(0, length - suffix);
+				end = length - 1;
+			} else {
+				start = Long.parseLong(startStr);
+				end = endStr.isEmpty() ? length - 1 : Math.min(Long.parseLong(endStr), length - 1);
+				if (end < start) {
+					return start >= length ? new long[0] : null;
+				}
+			}
+			if (start >= length) {
+				return new long[0];
+			}
+			return new long[] { start, end };
+		} catch (NumberFormatException exc) {
+			return null;
+		}
+	}
+	
 	@GET
 	@Produces(MediaType.APPLICATION_JSON)
 	@Path("/ids")
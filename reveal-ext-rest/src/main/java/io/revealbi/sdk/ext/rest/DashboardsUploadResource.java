@@ -1,23 +1,63 @@
 package io.revealbi.sdk.ext.rest;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.text.ParseException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import javax.ws.rs.Consumes;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
 import org.glassfish.jersey.media.multipart.FormDataBodyPart;
 import org.glassfish.jersey.media.multipart.FormDataContentDisposition;
 import org.glassfish.jersey.media.multipart.FormDataParam;
+import org.jvnet.mimepull.MIMEConfig;
+import org.jvnet.mimepull.MIMEMessage;
+import org.jvnet.mimepull.MIMEParsingException;
+import org.jvnet.mimepull.MIMEPart;
+
+import com.infragistics.reveal.sdk.api.IRVUserContext;
 
 import io.revealbi.sdk.ext.api.IAuthorizationProvider;
+import io.revealbi.sdk.ext.api.IDashboardRepository;
 
 public class DashboardsUploadResource extends DashboardsResource {
+	private static Logger log = Logger.getLogger(DashboardsUploadResource.class.getSimpleName());
+
+	public static final int DEFAULT_UPLOAD_PARALLELISM = 4;
+	public static final long DEFAULT_MAX_FILE_SIZE = 50 * 1024 * 1024;
+	public static final long DEFAULT_MAX_TOTAL_SIZE = 1024 * 1024 * 1024;
+
+	private static final String FILES_FIELD = "files";
+	private static final String SAVE_ERROR = "Failed to save dashboard";
+
+	private static volatile int uploadParallelism = DEFAULT_UPLOAD_PARALLELISM;
+	private static volatile long maxFileSize = DEFAULT_MAX_FILE_SIZE;
+	private static volatile long maxTotalSize = DEFAULT_MAX_TOTAL_SIZE;
+	private static ExecutorService uploadExecutor;
+	private static ExecutorService ownedUploadExecutor;
+
 	@POST
 	@Consumes(MediaType.MULTIPART_FORM_DATA)
 	@Path("/upload")
@@ -37,4 +77,199 @@ public class DashboardsUploadResource extends DashboardsResource {
 		}
 		return Response.ok().build();
 	}
+
+	/**
+	 * Same as {@link #uploadDashboards(List)} but processing each file as it's received, instead of waiting for the whole
+	 * request to be received and buffered. Files are read one at a time and saved in parallel, with up to the number
+	 * of concurrent saves set with {@link #setUploadLimits(int, long, long)}, so the memory used is bounded by that number
+	 * and the maximum size allowed for each file.
+	 * @return The list of results, one for each ".rdash" file received, with the id assigned to the dashboard and the status.
+	 */
+	@POST
+	@Consumes(MediaType.MULTIPART_FORM_DATA)
+	@Produces(MediaType.APPLICATION_JSON)
+	@Path("/upload/stream")
+	public List<DashboardUploadResult> uploadDashboardsStream(@HeaderParam(HttpHeaders.CONTENT_TYPE) String contentType, InputStream body) throws IOException {
+		checkDashboardsPermission(IAuthorizationProvider.DashboardsActionType.UPLOAD);
+
+		String boundary = MediaType.valueOf(contentType).getParameters().get("boundary");
+		if (boundary == null) {
+			throw new WebApplicationException(Response.Status.BAD_REQUEST);
+		}
+		// resolved here, as the request context is not usable from other threads
+		IRVUserContext userContext = getUserContext();
+		IDashboardRepository repository = getDashboardRepository();
+		int parallelism = uploadParallelism;
+		long fileLimit = maxFileSize;
+		long totalLimit = maxTotalSize;
+
+		List<DashboardUploadResult> results = new ArrayList<DashboardUploadResult>();
+		List<Future<?>> saves = new ArrayList<Future<?>>();
+		Semaphore permits = new Semaphore(parallelism);
+		long totalSize = 0;
+		try (MIMEMessage message = new MIMEMessage(body, boundary, new MIMEConfig())) {
+			for (int i = 0; ; i++) {
+				MIMEPart part = getNextPart(message, i);
+				if (part == null) {
+					break;
+				}
+				String fileName = getFileName(part);
+				try (InputStream in = part.readOnce()) {
+					if (fileName == null || !fileName.endsWith(".rdash")) {
+						totalSize += drain(in);
+						continue;
+					}
+					DashboardUploadResult result = new DashboardUploadResult(fileName, null, null);
+					results.add(result);
+					ByteArrayOutputStream content = new ByteArrayOutputStream();
+					long size = read(in, content, fileLimit);
+					if (size > fileLimit) {
+						size += drain(in);
+					}
+					totalSize += size;
+					if (totalSize > totalLimit) {
+						result.setStatus(DashboardUploadResult.Status.TOTAL_SIZE_EXCEEDED);
+						break;
+					}
+					if (size > fileLimit) {
+						result.setStatus(DashboardUploadResult.Status.TOO_LARGE);
+						continue;
+					}
+					result.setDashboardId(UUID.randomUUID().toString());
+					permits.acquire();
+					try {
+						saves.add(getUploadExecutor().submit(new Runnable() {
+							@Override
+							public void run() {
+								try {
+									repository.saveDashboard(userContext, result.getDashboardId(), new ByteArrayInputStream(content.toByteArray()));
+									result.setStatus(DashboardUploadResult.Status.SAVED);
+								} catch (Exception exc) {
+									// the cause is not returned, as it might include server paths
+									log.log(Level.WARNING, "Failed to save uploaded dashboard " + result.getFileName() + " as " + result.getDashboardId(), exc);
+									result.setStatus(DashboardUploadResult.Status.FAILED);
+									result.setError(SAVE_ERROR);
+								} finally {
+									permits.release();
+								}
+							}
+						}));
+					} catch (RuntimeException exc) {
+						permits.release();
+						throw exc;
+					}
+				}
+			}
+			for (Future<?> save : saves) {
+				save.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while saving uploaded dashboards");
+		} catch (ExecutionException e) {
+			throw new IOException(e.getCause());
+		} catch (MIMEParsingException e) {
+			throw new WebApplicationException(e, Response.Status.BAD_REQUEST);
+		}
+		return results;
+	}
+
+	/**
+	 * Sets the limits used by {@link #uploadDashboardsStream(String, InputStream)}.
+	 * @param parallelism The maximum number of dashboards saved concurrently for each request.
+	 * @param maxFileSize The maximum size allowed for each dashboard, larger files are skipped.
+	 * @param maxTotalSize The maximum size allowed for all files in a request, the request stops being processed when exceeded.
+	 */
+	public static void setUploadLimits(int parallelism, long maxFileSize, long maxTotalSize) {
+		if (parallelism <= 0) {
+			throw new IllegalArgumentException("Invalid parallelism: " + parallelism);
+		}
+		DashboardsUploadResource.uploadParallelism = parallelism;
+		DashboardsUploadResource.maxFileSize = maxFileSize;
+		DashboardsUploadResource.maxTotalSize = maxTotalSize;
+	}
+
+	/**
+	 * Sets the executor used to save uploaded dashboards, by default a fixed pool with one thread per processor is used.
+	 * The given executor is not shut down by this class, while the default pool is shut down when replaced.
+	 */
+	public static synchronized void setUploadExecutor(ExecutorService executor) {
+		ExecutorService previous = ownedUploadExecutor;
+		uploadExecutor = executor;
+		ownedUploadExecutor = null;
+		if (previous != null && previous != executor) {
+			// saves already submitted are completed before the threads are stopped
+			previous.shutdown();
+		}
+	}
+
+	private static synchronized ExecutorService getUploadExecutor() {
+		if (uploadExecutor == null) {
+			final AtomicInteger count = new AtomicInteger();
+			uploadExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "reveal-dashboards-upload-" + count.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			ownedUploadExecutor = uploadExecutor;
+		}
+		return uploadExecutor;
+	}
+
+	/**
+	 * Returns the part with the given index, or null if there are no more parts. Parts are parsed lazily as they're read,
+	 * so the previous part must be fully read before calling this method.
+	 */
+	private static MIMEPart getNextPart(MIMEMessage message, int index) {
+		if (index > 0) {
+			// parses the start of the next part, or the end of the message
+			message.makeProgress();
+		}
+		try {
+			return message.getPart(index);
+		} catch (MIMEParsingException exc) {
+			// thrown when requesting a part after the end of the message
+			return null;
+		}
+	}
+
+	private static String getFileName(MIMEPart part) {
+		List<String> header = part.getHeader(HttpHeaders.CONTENT_DISPOSITION);
+		if (header == null || header.isEmpty()) {
+			return null;
+		}
+		try {
+			FormDataContentDisposition disposition = new FormDataContentDisposition(header.get(0));
+			return FILES_FIELD.equals(disposition.getName()) ? disposition.getFileName() : null;
+		} catch (ParseException exc) {
+			return null;
+		}
+	}
+
+	/**
+	 * Reads up to one byte more than the limit, so the caller can detect the limit was exceeded.
+	 */
+	private static long read(InputStream in, ByteArrayOutputStream out, long limit) throws IOException {
+		byte[] buffer = new byte[8192];
+		long size = 0;
+		int read;
+		while (size <= limit && (read = in.read(buffer, 0, (int)Math.min(buffer.length, limit + 1 - size))) != -1) {
+			out.write(buffer, 0, read);
+			size += read;
+		}
+		return size;
+	}
+
+	private static long drain(InputStream in) throws IOException {
+		byte[] buffer = new byte[8192];
+		long size = 0;
+		int read;
+		while ((read = in.read(buffer)) != -1) {
+			size += read;
+		}
+		return size;
+	}
 }
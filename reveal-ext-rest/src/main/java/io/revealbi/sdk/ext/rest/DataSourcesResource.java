@@ -1,7 +1,9 @@
 package io.revealbi.sdk.ext.rest;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import javax.ws.rs.Consumes;
@@ -16,10 +18,15 @@ import javax.ws.rs.core.Response;
 
 import com.infragistics.reportplus.dashboardmodel.DataSource;
 import com.infragistics.reportplus.datalayer.DashboardModelUtils;
+import com.infragistics.reveal.sdk.api.IRVUserContext;
 
 import io.revealbi.sdk.ext.api.CredentialRepositoryFactory;
+import io.revealbi.sdk.ext.api.DashboardRepositoryFactory;
+import io.revealbi.sdk.ext.api.DataSourceDependencies;
 import io.revealbi.sdk.ext.api.DataSourcesInfo;
 import io.revealbi.sdk.ext.api.DataSourcesRepositoryFactory;
+import io.revealbi.sdk.ext.api.IAuthorizationProvider;
+import io.revealbi.sdk.ext.api.IDashboardRepository;
 import io.revealbi.sdk.ext.api.IDataSourcesRepository;
 
 @Path("/dataSources")
@@ -34,6 +41,23 @@ public class DataSourcesResource extends BaseResource {
 		return getDataSourcesRepository().getUserDataSources(getUserContext());
 	}
 	
+	/**
+	 * Returns the dashboards using the data source with the given id or unique identifier, see {@link IDashboardRepository#getDataSourceDependencies(com.infragistics.reveal.sdk.api.IRVUserContext, String)}.
+	 * Dashboards the user doesn't have permission to read are skipped.
+	 */
+	@GET
+	@Produces(MediaType.APPLICATION_JSON)
+	@Path("/{dataSourceId}/dashboards")
+	public DataSourceDependencies getDataSourceDashboards(@PathParam("dataSourceId") String dataSourceId) throws IOException {
+		checkDashboardsPermission(IAuthorizationProvider.DashboardsActionType.LIST);
+		
+		IRVUserContext userContext = getUserContext();
+		DataSourceDependencies dependencies = DashboardRepositoryFactory.getInstance().getDataSourceDependencies(userContext, dataSourceId);
+		List<String> readableIds = getAuthorizedIds(userContext, Arrays.asList(dependencies.getDashboardIds()), IAuthorizationProvider.DashboardActionType.READ);
+		dependencies.setDashboardIds(readableIds.toArray(new String[readableIds.size()]));
+		return dependencies;
+	}
+	
 	@Path("/{dataSourceId}")
 	@PUT
 	@Consumes(MediaType.APPLICATION_JSON)
@@ -5,7 +5,9 @@ import com.infragistics.reveal.engine.init.RevealEngineInitializer;
 public class RestExtFactory {
 	public static void registerAllResources() {
 		RevealEngineInitializer.registerResource(DashboardsResource.class);
+		RevealEngineInitializer.registerResource(AsyncDashboardsResource.class);
 		RevealEngineInitializer.registerResource(DataSourcesResource.class);
+		RevealEngineInitializer.registerResource(ChangesResource.class);
 		RevealEngineInitializer.registerResource(CredentialsResource.class);
 		RevealEngineInitializer.registerResource(OAuthResource.class);
 	}